@@ -0,0 +1,84 @@
+package com.callapp.mobile;
+
+import org.webrtc.CapturerObserver;
+import org.webrtc.VideoFrame;
+
+/**
+ * The processing chain between a screen capturer and its video source, built once per share:
+ * metrics stage, region cropper, frame pacer and static frame filter, ending in an observer
+ * that records the forwarded frame's latency, feeds the video source and then hands the frame
+ * to the frame distributor. The content mode selector, if any, is fed by the metrics stage and
+ * the static frame filter. All stages run synchronously on the capture thread.
+ */
+final class CaptureChain {
+    private final CapturerObserver sourceObserver;
+    private final FrameDistributor distributor;
+    private final CaptureMetrics metrics;
+    private final PooledFrameConverter converter;
+    private final Runnable firstFrameListener;
+    private final StaticFrameFilter filter;
+    private final FramePacer pacer;
+    private final CaptureRegionCropper cropper;
+    private final CaptureMetricsStage metricsStage;
+    // Capture thread only
+    private boolean frameForwarded;
+
+    /** {@code firstFrameListener} runs on the capture thread after the first forwarded frame. */
+    CaptureChain(CapturerObserver sourceObserver, FrameDistributor distributor, CaptureMetrics metrics,
+                 PooledFrameConverter converter, ContentModeSelector selector, float refreshRate, float[] region,
+                 Runnable firstFrameListener) {
+        this.sourceObserver = sourceObserver;
+        this.distributor = distributor;
+        this.metrics = metrics;
+        this.converter = converter;
+        this.firstFrameListener = firstFrameListener;
+        filter = new StaticFrameFilter(new EncoderObserver(), metrics, converter, selector);
+        pacer = new FramePacer(filter, metrics, refreshRate);
+        cropper = new CaptureRegionCropper(pacer, region);
+        metricsStage = new CaptureMetricsStage(cropper, metrics, selector);
+    }
+
+    /** The observer to initialize the capturer with. */
+    CapturerObserver getInput() {
+        return metricsStage;
+    }
+
+    StaticFrameFilter getStaticFrameFilter() {
+        return filter;
+    }
+
+    FramePacer getPacer() {
+        return pacer;
+    }
+
+    CaptureRegionCropper getCropper() {
+        return cropper;
+    }
+
+    private final class EncoderObserver implements CapturerObserver {
+        @Override
+        public void onCapturerStarted(boolean success) {
+            sourceObserver.onCapturerStarted(success);
+        }
+
+        @Override
+        public void onCapturerStopped() {
+            sourceObserver.onCapturerStopped();
+        }
+
+        @Override
+        public void onFrameCaptured(VideoFrame frame) {
+            // The pacer may have restamped the frame; latency counts from the capture timestamp
+            metrics.onFrameForwarded(System.nanoTime() - metricsStage.getCaptureTimestampNs());
+            sourceObserver.onFrameCaptured(frame);
+            distributor.distribute(frame, converter);
+
+            if (!frameForwarded) {
+                frameForwarded = true;
+                if (firstFrameListener != null) {
+                    firstFrameListener.run();
+                }
+            }
+        }
+    }
+}
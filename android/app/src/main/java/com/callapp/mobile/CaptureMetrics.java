@@ -0,0 +1,142 @@
+package com.callapp.mobile;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Frame counters and timing samples for the screen capture path. Recording only writes into
+ * preallocated primitive arrays, so it is safe to call for every frame; the work of sorting
+ * and summarizing happens in {@link #snapshot()} on the caller's thread.
+ * Plain Java so it can be exercised off-device.
+ */
+final class CaptureMetrics {
+    static final int RING_SIZE = 128;
+    /** Upper bounds (exclusive, ms) of the inter-frame interval histogram; the last bucket is open. */
+    static final int[] INTERVAL_BUCKETS_MS = { 17, 34, 50, 100, 250, 500, 1000 };
+
+    private long framesCaptured;
+    private long framesForwarded;
+    private long framesDropped;
+    private int width;
+    private int height;
+    private long lastCaptureTimestampNs = -1;
+
+    private final long[] intervalsNs = new long[RING_SIZE];
+    private int intervalCount;
+    private int intervalIndex;
+    private final long[] intervalHistogram = new long[INTERVAL_BUCKETS_MS.length + 1];
+
+    private final long[] latenciesNs = new long[RING_SIZE];
+    private int latencyCount;
+    private int latencyIndex;
+
+    synchronized void onFrameCaptured(long timestampNs, int frameWidth, int frameHeight) {
+        framesCaptured++;
+        width = frameWidth;
+        height = frameHeight;
+        if (lastCaptureTimestampNs >= 0 && timestampNs > lastCaptureTimestampNs) {
+            long intervalNs = timestampNs - lastCaptureTimestampNs;
+            intervalsNs[intervalIndex] = intervalNs;
+            intervalIndex = (intervalIndex + 1) % RING_SIZE;
+            intervalCount = Math.min(intervalCount + 1, RING_SIZE);
+            intervalHistogram[bucketFor(intervalNs / 1_000_000L)]++;
+        }
+        lastCaptureTimestampNs = timestampNs;
+    }
+
+    /** {@code latencyNs} is the time from texture timestamp to delivery to the source observer. */
+    synchronized void onFrameForwarded(long latencyNs) {
+        framesForwarded++;
+        latenciesNs[latencyIndex] = latencyNs;
+        latencyIndex = (latencyIndex + 1) % RING_SIZE;
+        latencyCount = Math.min(latencyCount + 1, RING_SIZE);
+    }
+
+    synchronized long getFramesForwarded() {
+        return framesForwarded;
+    }
+
+    synchronized void onFrameDropped() {
+        framesDropped++;
+    }
+
+    synchronized void reset() {
+        framesCaptured = 0;
+        framesForwarded = 0;
+        framesDropped = 0;
+        width = 0;
+        height = 0;
+        lastCaptureTimestampNs = -1;
+        intervalCount = 0;
+        intervalIndex = 0;
+        latencyCount = 0;
+        latencyIndex = 0;
+        Arrays.fill(intervalHistogram, 0);
+    }
+
+    synchronized Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot();
+        snapshot.framesCaptured = framesCaptured;
+        snapshot.framesForwarded = framesForwarded;
+        snapshot.framesDropped = framesDropped;
+        snapshot.width = width;
+        snapshot.height = height;
+        snapshot.intervalHistogram = intervalHistogram.clone();
+
+        if (intervalCount > 0) {
+            long total = 0;
+            for (int i = 0; i < intervalCount; i++) {
+                total += intervalsNs[i];
+            }
+            snapshot.captureFps = 1e9 * intervalCount / total;
+        }
+        if (latencyCount > 0) {
+            long[] sorted = Arrays.copyOf(latenciesNs, latencyCount);
+            Arrays.sort(sorted);
+            long total = 0;
+            for (long latency : sorted) {
+                total += latency;
+            }
+            snapshot.latencyAvgMs = total / (double) latencyCount / 1e6;
+            snapshot.latencyP50Ms = percentile(sorted, 0.50) / 1e6;
+            snapshot.latencyP95Ms = percentile(sorted, 0.95) / 1e6;
+            snapshot.latencyMaxMs = sorted[sorted.length - 1] / 1e6;
+        }
+        return snapshot;
+    }
+
+    private static int bucketFor(long intervalMs) {
+        for (int i = 0; i < INTERVAL_BUCKETS_MS.length; i++) {
+            if (intervalMs < INTERVAL_BUCKETS_MS[i]) {
+                return i;
+            }
+        }
+        return INTERVAL_BUCKETS_MS.length;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    static final class Snapshot {
+        long framesCaptured;
+        long framesForwarded;
+        long framesDropped;
+        int width;
+        int height;
+        double captureFps;
+        double latencyAvgMs;
+        double latencyP50Ms;
+        double latencyP95Ms;
+        double latencyMaxMs;
+        long[] intervalHistogram;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                "%dx%d captured=%d forwarded=%d dropped=%d fps=%.1f latency avg=%.1fms p95=%.1fms",
+                width, height, framesCaptured, framesForwarded, framesDropped, captureFps, latencyAvgMs, latencyP95Ms);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.callapp.mobile;
+
+import org.webrtc.CapturerObserver;
+import org.webrtc.VideoFrame;
+
+/**
+ * First stage of the capture chain: records every frame from the capturer in CaptureMetrics
+ * with its original size and timestamp, and counts it for the content mode selector, before
+ * cropping, pacing or static frame detection see it. The later stages run synchronously on the capture thread, so while they handle a frame
+ * {@link #getCaptureTimestampNs()} is its original timestamp, even after the pacer restamps it.
+ */
+final class CaptureMetricsStage implements CapturerObserver {
+    private final CapturerObserver downstream;
+    private final CaptureMetrics metrics;
+    private final ContentModeSelector selector;
+    // Capture thread only
+    private long captureTimestampNs = -1;
+
+    /** {@code selector} may be null. */
+    CaptureMetricsStage(CapturerObserver downstream, CaptureMetrics metrics, ContentModeSelector selector) {
+        this.downstream = downstream;
+        this.metrics = metrics;
+        this.selector = selector;
+    }
+
+    long getCaptureTimestampNs() {
+        return captureTimestampNs;
+    }
+
+    @Override
+    public void onCapturerStarted(boolean success) {
+        downstream.onCapturerStarted(success);
+    }
+
+    @Override
+    public void onCapturerStopped() {
+        downstream.onCapturerStopped();
+    }
+
+    @Override
+    public void onFrameCaptured(VideoFrame frame) {
+        captureTimestampNs = frame.getTimestampNs();
+        metrics.onFrameCaptured(captureTimestampNs, frame.getRotatedWidth(), frame.getRotatedHeight());
+        if (selector != null) {
+            selector.onFrameCaptured(captureTimestampNs);
+        }
+        downstream.onFrameCaptured(frame);
+    }
+}
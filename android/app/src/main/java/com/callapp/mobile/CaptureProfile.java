@@ -0,0 +1,80 @@
+package com.callapp.mobile;
+
+import android.util.DisplayMetrics;
+
+import com.facebook.react.bridge.ReadableMap;
+
+/**
+ * Capture settings requested from JS. The profile is resolved against the real display
+ * metrics to get the size handed to ScreenCapturerAndroid, so we never ask for more pixels
+ * than the display has or than the profile allows.
+ */
+final class CaptureProfile {
+    static final int DEFAULT_MAX_WIDTH = 1920;
+    static final int DEFAULT_MAX_HEIGHT = 1080;
+    static final int DEFAULT_FPS = 30;
+
+    final int maxWidth;
+    final int maxHeight;
+    final int fps;
+    final boolean keepAspectRatio;
+    final float scale;
+
+    CaptureProfile(int maxWidth, int maxHeight, int fps, boolean keepAspectRatio, float scale) {
+        this.maxWidth = Math.max(2, maxWidth);
+        this.maxHeight = Math.max(2, maxHeight);
+        this.fps = Math.max(1, Math.min(60, fps));
+        this.keepAspectRatio = keepAspectRatio;
+        this.scale = scale > 0f ? Math.min(1f, scale) : 1f;
+    }
+
+    static CaptureProfile defaults() {
+        return new CaptureProfile(DEFAULT_MAX_WIDTH, DEFAULT_MAX_HEIGHT, DEFAULT_FPS, true, 1f);
+    }
+
+    /** Builds a profile from JS options, taking any missing keys from {@code base}. */
+    static CaptureProfile fromReadableMap(ReadableMap options, CaptureProfile base) {
+        if (options == null) {
+            return base;
+        }
+        return new CaptureProfile(
+            options.hasKey("maxWidth") ? options.getInt("maxWidth") : base.maxWidth,
+            options.hasKey("maxHeight") ? options.getInt("maxHeight") : base.maxHeight,
+            options.hasKey("fps") ? options.getInt("fps") : base.fps,
+            options.hasKey("keepAspectRatio") ? options.getBoolean("keepAspectRatio") : base.keepAspectRatio,
+            options.hasKey("scale") ? (float) options.getDouble("scale") : base.scale
+        );
+    }
+
+    /**
+     * Returns {width, height} for the capturer. Max dimensions are given for landscape and
+     * swapped for portrait displays, so 1920x1080 on a portrait phone caps at 1080x1920.
+     */
+    int[] resolve(DisplayMetrics metrics) {
+        int displayWidth = Math.round(metrics.widthPixels * scale);
+        int displayHeight = Math.round(metrics.heightPixels * scale);
+        boolean portrait = displayHeight > displayWidth;
+        int boundWidth = portrait ? Math.min(maxWidth, maxHeight) : Math.max(maxWidth, maxHeight);
+        int boundHeight = portrait ? Math.max(maxWidth, maxHeight) : Math.min(maxWidth, maxHeight);
+
+        int width;
+        int height;
+        if (keepAspectRatio) {
+            float fit = Math.min(1f, Math.min((float) boundWidth / displayWidth, (float) boundHeight / displayHeight));
+            width = Math.round(displayWidth * fit);
+            height = Math.round(displayHeight * fit);
+        } else {
+            width = Math.min(displayWidth, boundWidth);
+            height = Math.min(displayHeight, boundHeight);
+        }
+
+        // Encoders want even dimensions for 4:2:0 chroma subsampling
+        return new int[] { Math.max(2, width & ~1), Math.max(2, height & ~1) };
+    }
+
+    @Override
+    public String toString() {
+        return "CaptureProfile{" + maxWidth + "x" + maxHeight + "@" + fps
+            + ", keepAspectRatio=" + keepAspectRatio + ", scale=" + scale + "}";
+    }
+}
@@ -0,0 +1,69 @@
+package com.callapp.mobile;
+
+import org.webrtc.CapturerObserver;
+import org.webrtc.VideoFrame;
+
+/**
+ * First stage after the screen capturer: crops every frame to the shared region before
+ * anything else looks at it. For texture frames cropAndScale only changes the sampling
+ * matrix, so the crop is done on the GPU by whoever draws the frame next (encoder, converter)
+ * and the encoder only ever sees region-sized frames.
+ *
+ * The region is kept normalized to the frame, so it survives capture format changes.
+ * Screen frames are delivered unrotated, which lets display coordinates map straight to
+ * buffer coordinates.
+ */
+final class CaptureRegionCropper implements CapturerObserver {
+    private final CapturerObserver downstream;
+    // {left, top, width, height} as fractions of the frame; null captures the whole frame
+    private volatile float[] region;
+
+    CaptureRegionCropper(CapturerObserver downstream, float[] region) {
+        this.downstream = downstream;
+        this.region = region;
+    }
+
+    void setRegion(float[] region) {
+        this.region = region;
+    }
+
+    @Override
+    public void onCapturerStarted(boolean success) {
+        downstream.onCapturerStarted(success);
+    }
+
+    @Override
+    public void onCapturerStopped() {
+        downstream.onCapturerStopped();
+    }
+
+    @Override
+    public void onFrameCaptured(VideoFrame frame) {
+        float[] current = region;
+        if (current == null) {
+            downstream.onFrameCaptured(frame);
+            return;
+        }
+
+        VideoFrame.Buffer buffer = frame.getBuffer();
+        int bufferWidth = buffer.getWidth();
+        int bufferHeight = buffer.getHeight();
+        // Even offsets and sizes keep the 4:2:0 chroma planes aligned
+        int x = Math.min(bufferWidth - 2, Math.round(current[0] * bufferWidth)) & ~1;
+        int y = Math.min(bufferHeight - 2, Math.round(current[1] * bufferHeight)) & ~1;
+        int width = Math.max(2, Math.min(bufferWidth - x, Math.round(current[2] * bufferWidth)) & ~1);
+        int height = Math.max(2, Math.min(bufferHeight - y, Math.round(current[3] * bufferHeight)) & ~1);
+        if (width == bufferWidth && height == bufferHeight) {
+            downstream.onFrameCaptured(frame);
+            return;
+        }
+
+        VideoFrame.Buffer cropped = buffer.cropAndScale(x, y, width, height, width, height);
+        VideoFrame croppedFrame = new VideoFrame(cropped, frame.getRotation(), frame.getTimestampNs());
+        try {
+            downstream.onFrameCaptured(croppedFrame);
+        } finally {
+            croppedFrame.release();
+        }
+    }
+}
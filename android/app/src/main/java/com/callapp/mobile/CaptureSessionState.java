@@ -0,0 +1,22 @@
+package com.callapp.mobile;
+
+/**
+ * Lifecycle of the screen capture session. Transitions only happen on the module's session
+ * executor, except IDLE to REQUESTING and CAPTURING to STOPPING, which the bridge thread
+ * claims with a compare-and-set. Any thread may read the current state. STOPPING lasts until
+ * the old session has been disposed in the background; a start requested meanwhile waits for
+ * IDLE instead of failing.
+ */
+enum CaptureSessionState {
+    IDLE("idle"),
+    REQUESTING("requesting"),
+    STARTING("starting"),
+    CAPTURING("capturing"),
+    STOPPING("stopping");
+
+    final String jsName;
+
+    CaptureSessionState(String jsName) {
+        this.jsName = jsName;
+    }
+}
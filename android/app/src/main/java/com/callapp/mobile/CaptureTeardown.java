@@ -0,0 +1,95 @@
+package com.callapp.mobile;
+
+import android.content.Context;
+import android.media.projection.MediaProjection;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.webrtc.SurfaceTextureHelper;
+import org.webrtc.ThreadUtils;
+import org.webrtc.VideoCapturer;
+import org.webrtc.VideoSource;
+import org.webrtc.VideoTrack;
+
+/**
+ * Everything a finished capture session still owns, detached from the module so it can be
+ * disposed off the session thread. stopCapture() waits for the capture thread to drain and
+ * can take hundreds of milliseconds; nothing else waits for it any more.
+ *
+ * The order matches what WebRTC expects: stop the capturer before disposing the source, and
+ * release GL resources on the capture thread before the helper goes away.
+ */
+final class CaptureTeardown {
+    private static final String TAG = "CaptureTeardown";
+
+    private final Context context;
+    private final VideoCapturer capturer;
+    private final VideoSource source;
+    private final VideoTrack track;
+    private final SurfaceTextureHelper surfaceTextureHelper;
+    private final PooledFrameConverter frameConverter;
+    private final PlaybackAudioCapture playbackAudioCapture;
+    private final MediaProjection mediaProjection;
+
+    private long stopCaptureMs;
+    private long totalMs;
+
+    CaptureTeardown(Context context, VideoCapturer capturer, VideoSource source, VideoTrack track,
+            SurfaceTextureHelper surfaceTextureHelper, PooledFrameConverter frameConverter,
+            PlaybackAudioCapture playbackAudioCapture, MediaProjection mediaProjection) {
+        this.context = context;
+        this.capturer = capturer;
+        this.source = source;
+        this.track = track;
+        this.surfaceTextureHelper = surfaceTextureHelper;
+        this.frameConverter = frameConverter;
+        this.playbackAudioCapture = playbackAudioCapture;
+        this.mediaProjection = mediaProjection;
+    }
+
+    /** Disposes everything; safe on any thread except the capture thread itself. */
+    void run() throws InterruptedException {
+        long startedAt = SystemClock.elapsedRealtime();
+        try {
+            if (playbackAudioCapture != null) {
+                playbackAudioCapture.stop();
+            }
+            if (capturer != null) {
+                long stopStartedAt = SystemClock.elapsedRealtime();
+                capturer.stopCapture();
+                stopCaptureMs = SystemClock.elapsedRealtime() - stopStartedAt;
+                capturer.dispose();
+            }
+            if (source != null) {
+                source.dispose();
+            }
+            if (track != null) {
+                track.dispose();
+            }
+            if (surfaceTextureHelper != null) {
+                if (frameConverter != null) {
+                    // dispose() jumps the helper's queue, so release synchronously there first
+                    ThreadUtils.invokeAtFrontUninterruptibly(surfaceTextureHelper.getHandler(), frameConverter::release);
+                }
+                surfaceTextureHelper.dispose();
+            }
+            if (mediaProjection != null) {
+                mediaProjection.stop();
+                ScreenCaptureService.stop(context);
+            }
+        } finally {
+            totalMs = SystemClock.elapsedRealtime() - startedAt;
+            Log.d(TAG, "Capture session disposed in " + totalMs + "ms (stopCapture " + stopCaptureMs + "ms)");
+        }
+    }
+
+    /** Time spent in stopCapture(), the part that used to block the bridge thread the longest. */
+    long getStopCaptureMs() {
+        return stopCaptureMs;
+    }
+
+    /** Total time run() took; a synchronous stop would have blocked its caller this long. */
+    long getTotalMs() {
+        return totalMs;
+    }
+}
@@ -0,0 +1,375 @@
+package com.callapp.mobile;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.media.AudioManager;
+import android.media.AudioRecordingConfiguration;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.media.MediaFormat;
+import android.media.MediaRecorder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Finds out which hardware video encoders actually work on this device and how fast they are.
+ * Each candidate encoder gets a short encode at every probe size; the measured frame rates
+ * are stored in SharedPreferences keyed by the build fingerprint, so the probe only runs again
+ * after an OS update.
+ *
+ * The results do not change the call stack's codecs, which are react-native-webrtc's own;
+ * JS reads them through ScreenCaptureModule.getCodecCapabilities to pick codec preferences.
+ */
+final class CodecCapabilityProbe {
+    private static final String TAG = "CodecCapabilityProbe";
+    private static final String PREFS_NAME = "codec_capabilities";
+    private static final String KEY_FINGERPRINT = "fingerprint";
+    private static final String KEY_ENCODERS = "encoders";
+
+    // WebRTC codec names and the MediaCodec types behind them
+    private static final String[] CODEC_NAMES = { "H264", "VP8", "VP9", "AV1" };
+    private static final String[] CODEC_MIME_TYPES = {
+        MediaFormat.MIMETYPE_VIDEO_AVC, MediaFormat.MIMETYPE_VIDEO_VP8, MediaFormat.MIMETYPE_VIDEO_VP9, "video/av01"
+    };
+    private static final int[][] PROBE_SIZES = { { 1280, 720 }, { 1920, 1080 } };
+    private static final int PROBE_FRAMES = 20;
+    private static final long PROBE_TIMEOUT_MS = 1500;
+    private static final long DEQUEUE_TIMEOUT_US = 10_000;
+    private static final long IDLE_DELAY_MS = 10_000;
+
+    private static volatile Results results;
+    private static boolean probeScheduled;
+
+    private CodecCapabilityProbe() {
+    }
+
+    /** Returns the in-memory or stored results for this build, or null if nothing was probed yet. */
+    static Results getResults(Context context) {
+        Results current = results;
+        if (current == null && context != null) {
+            current = load(context);
+            if (current != null) {
+                results = current;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Schedules the probe unless this build already has stored results. It starts once the main
+     * thread has gone idle after startup and IDLE_DELAY_MS more have passed, on a background
+     * thread.
+     */
+    static synchronized void probeWhenIdleIfNeeded(Context context) {
+        if (probeScheduled) {
+            return;
+        }
+        probeScheduled = true;
+        Context appContext = context.getApplicationContext();
+        Handler handler = new Handler(Looper.getMainLooper());
+        Looper.getMainLooper().getQueue().addIdleHandler(() -> {
+            handler.postDelayed(() -> startProbe(appContext), IDLE_DELAY_MS);
+            return false;
+        });
+    }
+
+    private static void startProbe(Context context) {
+        if (isCallActive(context)) {
+            Log.d(TAG, "Call in progress, probe skipped for this launch");
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            if (getResults(context) != null) {
+                return;
+            }
+            long startMs = System.currentTimeMillis();
+            Results probed = probe(context);
+            if (probed == null) {
+                Log.d(TAG, "Call started while probing, probe abandoned");
+                return;
+            }
+            save(context, probed);
+            results = probed;
+            Log.d(TAG, "Probed " + probed.encoders.size() + " encoders in " + (System.currentTimeMillis() - startMs) + "ms: " + probed);
+        }, "CodecProbeThread");
+        thread.start();
+    }
+
+    // Returns null if a call started while probing
+    private static Results probe(Context context) {
+        List<EncoderResult> encoders = new ArrayList<>();
+        MediaCodecInfo[] codecInfos = new MediaCodecList(MediaCodecList.REGULAR_CODECS).getCodecInfos();
+        byte[][][] frames = new byte[PROBE_SIZES.length][][];
+        for (int i = 0; i < PROBE_SIZES.length; i++) {
+            frames[i] = createNoiseFrames(PROBE_SIZES[i][0] * PROBE_SIZES[i][1] * 3 / 2);
+        }
+
+        for (MediaCodecInfo info : codecInfos) {
+            if (!info.isEncoder() || isSoftwareOnly(info)) {
+                continue;
+            }
+            for (int c = 0; c < CODEC_NAMES.length; c++) {
+                MediaCodecInfo.CodecCapabilities capabilities;
+                try {
+                    capabilities = info.getCapabilitiesForType(CODEC_MIME_TYPES[c]);
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                double[] fps = new double[PROBE_SIZES.length];
+                for (int s = 0; s < PROBE_SIZES.length; s++) {
+                    if (isCallActive(context)) {
+                        return null;
+                    }
+                    int width = PROBE_SIZES[s][0];
+                    int height = PROBE_SIZES[s][1];
+                    if (capabilities.getVideoCapabilities() != null
+                        && capabilities.getVideoCapabilities().isSizeSupported(width, height)) {
+                        fps[s] = measureFps(info.getName(), CODEC_MIME_TYPES[c], width, height, frames[s]);
+                    }
+                }
+                encoders.add(new EncoderResult(info.getName(), CODEC_NAMES[c], supportsHighProfile(capabilities), fps));
+            }
+        }
+        return new Results(encoders);
+    }
+
+    /**
+     * The probe competes with calls for the hardware encoders, so it does not run while one is
+     * up; it gets another chance on a later launch. A call always records the microphone for
+     * voice communication, and apps only see their own recordings here.
+     */
+    private static boolean isCallActive(Context context) {
+        AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+        for (AudioRecordingConfiguration recording : audioManager.getActiveRecordingConfigurations()) {
+            if (recording.getClientAudioSource() == MediaRecorder.AudioSource.VOICE_COMMUNICATION) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Encodes PROBE_FRAMES noise frames through ByteBuffer input and returns encoded frames per second
+    private static double measureFps(String codecName, String mimeType, int width, int height, byte[][] frames) {
+        MediaCodec codec = null;
+        try {
+            codec = MediaCodec.createByCodecName(codecName);
+            MediaFormat format = MediaFormat.createVideoFormat(mimeType, width, height);
+            format.setInteger(MediaFormat.KEY_COLOR_FORMAT, MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Flexible);
+            format.setInteger(MediaFormat.KEY_BIT_RATE, width * height * 4);
+            format.setInteger(MediaFormat.KEY_FRAME_RATE, 30);
+            format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, 1);
+            codec.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            codec.start();
+
+            MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+            int queued = 0;
+            int encoded = 0;
+            long startNs = System.nanoTime();
+            long deadlineNs = startNs + PROBE_TIMEOUT_MS * 1_000_000L;
+            while (encoded < PROBE_FRAMES && System.nanoTime() < deadlineNs) {
+                if (queued < PROBE_FRAMES) {
+                    int inputIndex = codec.dequeueInputBuffer(DEQUEUE_TIMEOUT_US);
+                    if (inputIndex >= 0) {
+                        ByteBuffer input = codec.getInputBuffer(inputIndex);
+                        byte[] frame = frames[queued % frames.length];
+                        input.clear();
+                        int size = Math.min(input.remaining(), frame.length);
+                        input.put(frame, 0, size);
+                        codec.queueInputBuffer(inputIndex, 0, size, queued * 33_333L, 0);
+                        queued++;
+                    }
+                }
+                int outputIndex = codec.dequeueOutputBuffer(bufferInfo, DEQUEUE_TIMEOUT_US);
+                if (outputIndex >= 0) {
+                    if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0) {
+                        encoded++;
+                    }
+                    codec.releaseOutputBuffer(outputIndex, false);
+                }
+            }
+            return encoded / ((System.nanoTime() - startNs) / 1e9);
+        } catch (Exception e) {
+            Log.w(TAG, "Encoder " + codecName + " failed at " + width + "x" + height, e);
+            return 0;
+        } finally {
+            if (codec != null) {
+                try {
+                    codec.stop();
+                } catch (Exception e) {
+                    // Not started or already in an error state
+                }
+                codec.release();
+            }
+        }
+    }
+
+    // Two alternating noise frames so every frame carries a full residual, like busy screen content
+    private static byte[][] createNoiseFrames(int size) {
+        Random random = new Random(42);
+        byte[][] frames = new byte[2][size];
+        for (byte[] frame : frames) {
+            random.nextBytes(frame);
+        }
+        return frames;
+    }
+
+    private static boolean isSoftwareOnly(MediaCodecInfo info) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            return info.isSoftwareOnly();
+        }
+        String name = info.getName();
+        return name.startsWith("OMX.google.") || name.startsWith("c2.android.");
+    }
+
+    private static boolean supportsHighProfile(MediaCodecInfo.CodecCapabilities capabilities) {
+        if (capabilities.profileLevels == null) {
+            return false;
+        }
+        for (MediaCodecInfo.CodecProfileLevel profileLevel : capabilities.profileLevels) {
+            if (profileLevel.profile == MediaCodecInfo.CodecProfileLevel.AVCProfileHigh) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Results load(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (!Build.FINGERPRINT.equals(prefs.getString(KEY_FINGERPRINT, null))) {
+            return null;
+        }
+        try {
+            JSONArray array = new JSONArray(prefs.getString(KEY_ENCODERS, "[]"));
+            List<EncoderResult> encoders = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject item = array.getJSONObject(i);
+                JSONArray fpsArray = item.getJSONArray("fps");
+                double[] fps = new double[fpsArray.length()];
+                for (int s = 0; s < fps.length; s++) {
+                    fps[s] = fpsArray.getDouble(s);
+                }
+                encoders.add(new EncoderResult(item.getString("name"), item.getString("codec"), item.getBoolean("highProfile"), fps));
+            }
+            return new Results(encoders);
+        } catch (JSONException e) {
+            Log.w(TAG, "Discarding unreadable codec probe results", e);
+            return null;
+        }
+    }
+
+    private static void save(Context context, Results results) {
+        try {
+            JSONArray array = new JSONArray();
+            for (EncoderResult encoder : results.encoders) {
+                JSONArray fps = new JSONArray();
+                for (double value : encoder.fps) {
+                    fps.put(value);
+                }
+                array.put(new JSONObject()
+                    .put("name", encoder.name)
+                    .put("codec", encoder.codec)
+                    .put("highProfile", encoder.highProfile)
+                    .put("fps", fps));
+            }
+            context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putString(KEY_FINGERPRINT, Build.FINGERPRINT)
+                .putString(KEY_ENCODERS, array.toString())
+                .apply();
+        } catch (JSONException e) {
+            Log.w(TAG, "Failed to store codec probe results", e);
+        }
+    }
+
+    static final class EncoderResult {
+        final String name;
+        final String codec;
+        final boolean highProfile;
+        /** Encoded frames per second at each PROBE_SIZES entry; 0 if unsupported or failed. */
+        final double[] fps;
+
+        EncoderResult(String name, String codec, boolean highProfile, double[] fps) {
+            this.name = name;
+            this.codec = codec;
+            this.highProfile = highProfile;
+            this.fps = fps;
+        }
+
+        boolean works() {
+            for (double value : fps) {
+                if (value > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Best measured pixels per second across the probe sizes. */
+        double pixelRate() {
+            double best = 0;
+            for (int s = 0; s < fps.length && s < PROBE_SIZES.length; s++) {
+                best = Math.max(best, fps[s] * PROBE_SIZES[s][0] * PROBE_SIZES[s][1]);
+            }
+            return best;
+        }
+    }
+
+    static final class Results {
+        final List<EncoderResult> encoders;
+
+        Results(List<EncoderResult> encoders) {
+            this.encoders = Collections.unmodifiableList(encoders);
+        }
+
+        /** Pixel rate of the fastest working hardware encoder for a WebRTC codec name, 0 if none. */
+        double getPixelRate(String codec) {
+            double best = 0;
+            for (EncoderResult encoder : encoders) {
+                if (encoder.codec.equalsIgnoreCase(codec)) {
+                    best = Math.max(best, encoder.pixelRate());
+                }
+            }
+            return best;
+        }
+
+        /** Codec names with a working hardware encoder, fastest first. */
+        List<String> getCodecsByThroughput() {
+            List<String> codecs = new ArrayList<>();
+            for (EncoderResult encoder : encoders) {
+                if (encoder.works() && !codecs.contains(encoder.codec)) {
+                    codecs.add(encoder.codec);
+                }
+            }
+            codecs.sort(Comparator.comparingDouble(this::getPixelRate).reversed());
+            return codecs;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            for (EncoderResult encoder : encoders) {
+                if (builder.length() > 0) {
+                    builder.append(", ");
+                }
+                builder.append(encoder.name).append('/').append(encoder.codec)
+                    .append('=').append(Math.round(encoder.pixelRate() / 1e6)).append("Mpx/s");
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.callapp.mobile;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks a ScreenContentMode from how often and how much the screen changes, over one-second
+ * windows; a window with many large changes looks like video or scrolling, one with few
+ * changes looks like a document. A different mode must win several windows in a row before it
+ * is reported, so short bursts do not flip the encoder settings.
+ *
+ * The virtual display only produces a frame when something changed, so frames are counted as
+ * the capturer delivers them, ahead of the pacer. The share of them that static frame
+ * detection found changed scales that count, so the change rate does not depend on the
+ * pacer's target fps or on the frames static detection holds back.
+ * Call from the capture thread only.
+ */
+final class ContentModeSelector {
+    static final long WINDOW_NS = TimeUnit.SECONDS.toNanos(1);
+    static final int HOLD_WINDOWS = 3;
+    static final double MOTION_MIN_CHANGE_FPS = 12;
+    static final double MOTION_MIN_DIRTY_RATIO = 0.1;
+    static final double TEXT_MAX_CHANGE_FPS = 3;
+
+    interface Listener {
+        /** Returns false if the mode was not applied, so the selector keeps the current one. */
+        boolean onContentModeSelected(ScreenContentMode mode);
+    }
+
+    private final Listener listener;
+    private ScreenContentMode current;
+    private ScreenContentMode candidate;
+    private int candidateWindows;
+    private long windowStartNs = -1;
+    private int capturedFrames;
+    private int comparedFrames;
+    private int changedFrames;
+    private double dirtyRatioSum;
+
+    ContentModeSelector(ScreenContentMode initial, Listener listener) {
+        current = initial;
+        this.listener = listener;
+    }
+
+    void reset(ScreenContentMode initial) {
+        current = initial;
+        candidate = null;
+        candidateWindows = 0;
+        windowStartNs = -1;
+        clearWindow();
+    }
+
+    /** Counts a frame from the capturer, before pacing; reports a switch when one is due. */
+    void onFrameCaptured(long timestampNs) {
+        if (windowStartNs < 0) {
+            windowStartNs = timestampNs;
+        }
+        long elapsedNs = timestampNs - windowStartNs;
+        if (elapsedNs >= WINDOW_NS) {
+            // Frames arrived but none were compared: static frame detection is off
+            boolean measured = capturedFrames == 0 || comparedFrames > 0;
+            double changedShare = comparedFrames > 0 ? (double) changedFrames / comparedFrames : 0;
+            double changeFps = capturedFrames * changedShare * 1e9 / elapsedNs;
+            double averageRatio = changedFrames > 0 ? dirtyRatioSum / changedFrames : 0;
+            windowStartNs = timestampNs;
+            clearWindow();
+            ScreenContentMode mode = measured ? onWindow(classify(changeFps, averageRatio)) : null;
+            if (mode != null && listener.onContentModeSelected(mode)) {
+                current = mode;
+            }
+        }
+        capturedFrames++;
+    }
+
+    /** Records the dirty ratio of a frame static frame detection compared. */
+    void onFrameCompared(float dirtyRatio) {
+        comparedFrames++;
+        if (dirtyRatio > 0f) {
+            changedFrames++;
+            dirtyRatioSum += dirtyRatio;
+        }
+    }
+
+    private void clearWindow() {
+        capturedFrames = 0;
+        comparedFrames = 0;
+        changedFrames = 0;
+        dirtyRatioSum = 0;
+    }
+
+    static ScreenContentMode classify(double changeFps, double averageDirtyRatio) {
+        if (changeFps >= MOTION_MIN_CHANGE_FPS && averageDirtyRatio >= MOTION_MIN_DIRTY_RATIO) {
+            return ScreenContentMode.MOTION;
+        }
+        if (changeFps < TEXT_MAX_CHANGE_FPS) {
+            return ScreenContentMode.TEXT;
+        }
+        return ScreenContentMode.DETAIL;
+    }
+
+    private ScreenContentMode onWindow(ScreenContentMode mode) {
+        if (mode == current) {
+            candidate = null;
+            candidateWindows = 0;
+            return null;
+        }
+        if (mode != candidate) {
+            candidate = mode;
+            candidateWindows = 0;
+        }
+        if (++candidateWindows < HOLD_WINDOWS) {
+            return null;
+        }
+        candidate = null;
+        candidateWindows = 0;
+        return mode;
+    }
+}
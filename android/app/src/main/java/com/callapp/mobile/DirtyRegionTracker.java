@@ -0,0 +1,117 @@
+package com.callapp.mobile;
+
+import java.util.Arrays;
+
+/**
+ * Splits frame signatures into tiles and marks the tiles that changed against a reference
+ * signature (the last frame handed to the encoder). The tile map is reused between frames;
+ * read it from the frame thread only, or copy it with {@link #copyDirtyTiles(boolean[])}.
+ */
+final class DirtyRegionTracker {
+    static final int RATIO_BUCKETS = 10;
+
+    final int columns;
+    final int rows;
+    private final int tileSize;
+    private final boolean[] dirtyTiles;
+    private int dirtyCount;
+
+    // Tuning counters, guarded by this
+    private long framesTracked;
+    private long dirtyTilesTotal;
+    private float lastDirtyRatio;
+    private final long[] ratioHistogram = new long[RATIO_BUCKETS];
+
+    DirtyRegionTracker(int signatureWidth, int signatureHeight, int tileSize) {
+        this.tileSize = tileSize;
+        this.columns = signatureWidth / tileSize;
+        this.rows = signatureHeight / tileSize;
+        this.dirtyTiles = new boolean[columns * rows];
+    }
+
+    /**
+     * Recomputes the dirty map of {@code current} against {@code reference} and returns the
+     * dirty tile ratio. Everything is dirty when the reference is empty.
+     */
+    float update(FrameSignature current, FrameSignature reference, int tolerance) {
+        dirtyCount = 0;
+        boolean compare = current.isValid() && reference.isValid() && current.width == reference.width;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                boolean dirty = !compare || tileChanged(current, reference, col, row, tolerance);
+                dirtyTiles[row * columns + col] = dirty;
+                if (dirty) {
+                    dirtyCount++;
+                }
+            }
+        }
+
+        float ratio = (float) dirtyCount / dirtyTiles.length;
+        synchronized (this) {
+            framesTracked++;
+            dirtyTilesTotal += dirtyCount;
+            lastDirtyRatio = ratio;
+            ratioHistogram[Math.min(RATIO_BUCKETS - 1, (int) (ratio * RATIO_BUCKETS))]++;
+        }
+        return ratio;
+    }
+
+    private boolean tileChanged(FrameSignature current, FrameSignature reference, int col, int row, int tolerance) {
+        int stride = current.width;
+        int start = row * tileSize * stride + col * tileSize;
+        for (int y = 0; y < tileSize; y++) {
+            int offset = start + y * stride;
+            for (int x = 0; x < tileSize; x++) {
+                if (Math.abs((current.luma[offset + x] & 0xFF) - (reference.luma[offset + x] & 0xFF)) > tolerance) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    int getDirtyCount() {
+        return dirtyCount;
+    }
+
+    int getTileCount() {
+        return dirtyTiles.length;
+    }
+
+    boolean isDirty(int col, int row) {
+        return dirtyTiles[row * columns + col];
+    }
+
+    /** Copies the row-major dirty map into {@code out}, allocating only if it is too small. */
+    boolean[] copyDirtyTiles(boolean[] out) {
+        if (out == null || out.length < dirtyTiles.length) {
+            out = new boolean[dirtyTiles.length];
+        }
+        System.arraycopy(dirtyTiles, 0, out, 0, dirtyTiles.length);
+        return out;
+    }
+
+    synchronized long getFramesTracked() {
+        return framesTracked;
+    }
+
+    synchronized float getLastDirtyRatio() {
+        return lastDirtyRatio;
+    }
+
+    synchronized float getAverageDirtyRatio() {
+        return framesTracked == 0 ? 0f : (float) dirtyTilesTotal / (framesTracked * dirtyTiles.length);
+    }
+
+    /** Frame counts per dirty ratio decile, 0-10% first. */
+    synchronized long[] getRatioHistogram() {
+        return ratioHistogram.clone();
+    }
+
+    synchronized void resetCounters() {
+        framesTracked = 0;
+        dirtyTilesTotal = 0;
+        lastDirtyRatio = 0f;
+        Arrays.fill(ratioHistogram, 0);
+    }
+}
@@ -0,0 +1,150 @@
+package com.callapp.mobile;
+
+import com.facebook.react.bridge.ReadableMap;
+
+/**
+ * Decides how far to scale screen capture down when the encoder cannot keep up, from periodic
+ * samples of the sender's stats. Lowering the capture format stops frames from being captured,
+ * filtered and converted only for WebRTC to drop them in front of the encoder.
+ *
+ * Levels walk down a fixed ladder, frame rate first because screen content keeps its detail
+ * better at lower rates. Content modes that maintain resolution use a ladder of frame rate
+ * steps only, so text is never downscaled. Samples where WebRTC reports a bandwidth limit are
+ * left to its own bandwidth adaptation and not fed in here.
+ *
+ * A sample counts as overloaded when too many offered frames were not encoded, the encoder
+ * was busy for too much of the interval, or WebRTC reports a CPU quality limitation; it shows
+ * headroom when all three are well below their limits. Hysteresis comes from the gap between
+ * the two sets of thresholds and from requiring several consecutive samples before each step,
+ * with stepping up deliberately slower than stepping down.
+ */
+final class EncoderBackpressureController {
+    private static final float[] FPS_SCALES = { 1f, 0.75f, 0.5f, 0.5f, 0.33f, 0.33f };
+    private static final float[] SIZE_SCALES = { 1f, 1f, 1f, 0.75f, 0.75f, 0.5f };
+    // Same number of levels as the ladder above, for modes that must keep the resolution
+    private static final float[] FPS_ONLY_SCALES = { 1f, 0.75f, 0.5f, 0.4f, 0.33f, 0.25f };
+    static final int MAX_LEVEL = FPS_SCALES.length - 1;
+
+    static final class Config {
+        final boolean enabled;
+        final int intervalMs;
+        final double overloadDropRatio;
+        final double headroomDropRatio;
+        final double overloadUtilization;
+        final double headroomUtilization;
+        final int stepDownAfter;
+        final int stepUpAfter;
+
+        Config(boolean enabled, int intervalMs, double overloadDropRatio, double headroomDropRatio,
+                double overloadUtilization, double headroomUtilization, int stepDownAfter, int stepUpAfter) {
+            this.enabled = enabled;
+            this.intervalMs = Math.max(250, intervalMs);
+            this.overloadDropRatio = overloadDropRatio;
+            this.headroomDropRatio = Math.min(headroomDropRatio, overloadDropRatio);
+            this.overloadUtilization = overloadUtilization;
+            this.headroomUtilization = Math.min(headroomUtilization, overloadUtilization);
+            this.stepDownAfter = Math.max(1, stepDownAfter);
+            this.stepUpAfter = Math.max(1, stepUpAfter);
+        }
+
+        static Config defaults() {
+            return new Config(true, 1000, 0.15, 0.03, 0.85, 0.5, 2, 8);
+        }
+
+        static Config fromReadableMap(ReadableMap options, Config base) {
+            if (options == null) {
+                return base;
+            }
+            return new Config(
+                options.hasKey("enabled") ? options.getBoolean("enabled") : base.enabled,
+                options.hasKey("intervalMs") ? options.getInt("intervalMs") : base.intervalMs,
+                options.hasKey("overloadDropRatio") ? options.getDouble("overloadDropRatio") : base.overloadDropRatio,
+                options.hasKey("headroomDropRatio") ? options.getDouble("headroomDropRatio") : base.headroomDropRatio,
+                options.hasKey("overloadUtilization") ? options.getDouble("overloadUtilization") : base.overloadUtilization,
+                options.hasKey("headroomUtilization") ? options.getDouble("headroomUtilization") : base.headroomUtilization,
+                options.hasKey("stepDownAfter") ? options.getInt("stepDownAfter") : base.stepDownAfter,
+                options.hasKey("stepUpAfter") ? options.getInt("stepUpAfter") : base.stepUpAfter
+            );
+        }
+    }
+
+    private final Config config;
+    private int level;
+    private int overloadedSamples;
+    private int headroomSamples;
+    private double lastDropRatio;
+    private double lastUtilization;
+
+    EncoderBackpressureController(Config config, int level) {
+        this.config = config;
+        this.level = Math.max(0, Math.min(MAX_LEVEL, level));
+    }
+
+    static float fpsScale(int level, boolean keepResolution) {
+        float[] scales = keepResolution ? FPS_ONLY_SCALES : FPS_SCALES;
+        return scales[Math.max(0, Math.min(MAX_LEVEL, level))];
+    }
+
+    static float sizeScale(int level, boolean keepResolution) {
+        return keepResolution ? 1f : SIZE_SCALES[Math.max(0, Math.min(MAX_LEVEL, level))];
+    }
+
+    int getLevel() {
+        return level;
+    }
+
+    double getLastDropRatio() {
+        return lastDropRatio;
+    }
+
+    double getLastUtilization() {
+        return lastUtilization;
+    }
+
+    void reset() {
+        level = 0;
+        overloadedSamples = 0;
+        headroomSamples = 0;
+    }
+
+    /**
+     * Feeds one interval of counters: frames offered to the encoder, frames it encoded, and
+     * seconds it spent encoding them. Returns the new level, or -1 if it did not change.
+     */
+    int onSample(double framesOffered, double framesEncoded, double encodeSeconds, double intervalSeconds, boolean cpuLimited) {
+        if (intervalSeconds <= 0) {
+            return -1;
+        }
+        // Nothing offered (static content) says nothing about the encoder
+        if (framesOffered < 1) {
+            return -1;
+        }
+        lastDropRatio = Math.max(0, 1 - framesEncoded / framesOffered);
+        lastUtilization = encodeSeconds / intervalSeconds;
+
+        boolean overloaded = cpuLimited
+            || lastDropRatio >= config.overloadDropRatio
+            || lastUtilization >= config.overloadUtilization;
+        boolean headroom = !cpuLimited
+            && lastDropRatio <= config.headroomDropRatio
+            && lastUtilization <= config.headroomUtilization;
+
+        overloadedSamples = overloaded ? overloadedSamples + 1 : 0;
+        headroomSamples = headroom ? headroomSamples + 1 : 0;
+
+        if (overloadedSamples >= config.stepDownAfter && level < MAX_LEVEL) {
+            return changeLevel(level + 1);
+        }
+        if (headroomSamples >= config.stepUpAfter && level > 0) {
+            return changeLevel(level - 1);
+        }
+        return -1;
+    }
+
+    private int changeLevel(int newLevel) {
+        level = newLevel;
+        overloadedSamples = 0;
+        headroomSamples = 0;
+        return level;
+    }
+}
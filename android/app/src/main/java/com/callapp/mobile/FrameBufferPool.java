@@ -0,0 +1,100 @@
+package com.callapp.mobile;
+
+import java.util.ArrayDeque;
+
+/**
+ * Small pool of reusable frame buffers keyed by resolution. Lookups scan a short array of
+ * buckets instead of a map so that acquiring a buffer in steady state allocates nothing.
+ * Plain Java so it can be exercised off-device.
+ */
+final class FrameBufferPool<T> {
+    interface Factory<T> {
+        T create(int width, int height);
+    }
+
+    private static final int MAX_RESOLUTIONS = 4;
+
+    private final Factory<T> factory;
+    private final int maxBuffersPerResolution;
+    private final Bucket<T>[] buckets;
+    private int bucketCount;
+    private long created;
+    private long reused;
+
+    FrameBufferPool(Factory<T> factory, int maxBuffersPerResolution) {
+        this.factory = factory;
+        this.maxBuffersPerResolution = maxBuffersPerResolution;
+        @SuppressWarnings("unchecked")
+        Bucket<T>[] buckets = (Bucket<T>[]) new Bucket<?>[MAX_RESOLUTIONS];
+        this.buckets = buckets;
+    }
+
+    synchronized T acquire(int width, int height) {
+        Bucket<T> bucket = findBucket(width, height);
+        if (bucket != null && !bucket.free.isEmpty()) {
+            reused++;
+            return bucket.free.pollLast();
+        }
+        created++;
+        return factory.create(width, height);
+    }
+
+    /** Returns a buffer to the pool; drops it if the pool for that resolution is full. */
+    synchronized void recycle(int width, int height, T buffer) {
+        Bucket<T> bucket = findBucket(width, height);
+        if (bucket == null) {
+            bucket = addBucket(width, height);
+        }
+        if (bucket.free.size() < maxBuffersPerResolution) {
+            bucket.free.addLast(buffer);
+        }
+    }
+
+    synchronized long getCreatedCount() {
+        return created;
+    }
+
+    synchronized long getReusedCount() {
+        return reused;
+    }
+
+    synchronized void clear() {
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = null;
+        }
+        bucketCount = 0;
+    }
+
+    private Bucket<T> findBucket(int width, int height) {
+        for (int i = 0; i < bucketCount; i++) {
+            Bucket<T> bucket = buckets[i];
+            if (bucket.width == width && bucket.height == height) {
+                return bucket;
+            }
+        }
+        return null;
+    }
+
+    private Bucket<T> addBucket(int width, int height) {
+        if (bucketCount == buckets.length) {
+            // Resolution changed more often than we keep track of; drop the oldest
+            System.arraycopy(buckets, 1, buckets, 0, buckets.length - 1);
+            bucketCount--;
+        }
+        Bucket<T> bucket = new Bucket<>(width, height, maxBuffersPerResolution);
+        buckets[bucketCount++] = bucket;
+        return bucket;
+    }
+
+    private static final class Bucket<T> {
+        final int width;
+        final int height;
+        final ArrayDeque<T> free;
+
+        Bucket(int width, int height, int capacity) {
+            this.width = width;
+            this.height = height;
+            this.free = new ArrayDeque<>(capacity);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.callapp.mobile;
+
+import android.util.Log;
+
+import org.webrtc.VideoFrame;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands every forwarded capture frame to any number of extra consumers (recorder, frame
+ * processors, thumbnails) after the encoder has had it. Asynchronous sinks get one hand-off
+ * copy however many of them take the frame, released when the last of them is done; for
+ * texture frames that is a GPU copy, so no sink keeps SurfaceTextureHelper from delivering
+ * the next frame (see PooledFrameConverter#copyForHandoff).
+ *
+ * Each sink has its own frame rate cap. Sinks without an executor run inline on the capture
+ * thread. Sinks with an executor never queue up: while one is still handling a frame, new
+ * frames are dropped for it, or with keep-latest only the newest one is kept waiting. Either
+ * way a slow sink holds at most two frames and never backs up the capture thread or encoder.
+ *
+ * removeSink waits for an asynchronous sink to finish the frame it is handling, so the sink
+ * can be released right after. An inline sink can still get one frame that distribute() had
+ * already picked up when removeSink was called, and has to tolerate that.
+ */
+final class FrameDistributor {
+    private static final String TAG = "FrameDistributor";
+    private static final int MAX_POOLED_FRAMES = 8;
+    private static final long REMOVE_TIMEOUT_MS = 500;
+
+    interface Sink {
+        /** The frame is only valid until this returns; retain() it to keep it longer. */
+        void onFrame(VideoFrame frame);
+
+        /** Lets a sink report that it is still busy with earlier work, so the frame is dropped. */
+        default boolean isBusy() {
+            return false;
+        }
+    }
+
+    private volatile Registration[] registrations = new Registration[0];
+    private final ArrayDeque<SharedFrame> framePool = new ArrayDeque<>(MAX_POOLED_FRAMES);
+
+    /**
+     * Registers {@code sink}. A null executor delivers inline on the capture thread. With an
+     * executor, {@code keepLatest} keeps the newest frame for the sink while it is busy
+     * instead of dropping it.
+     */
+    synchronized Registration addSink(Sink sink, double maxFps, Executor executor, boolean keepLatest) {
+        Registration registration = new Registration(sink, maxFps, executor, keepLatest);
+        Registration[] current = registrations;
+        Registration[] updated = new Registration[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = registration;
+        registrations = updated;
+        return registration;
+    }
+
+    /** Blocks until the sink is done with its frame; never call from the sink's executor. */
+    void removeSink(Registration registration) {
+        synchronized (this) {
+            Registration[] current = registrations;
+            int index = -1;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == registration) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                return;
+            }
+            Registration[] updated = new Registration[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            registrations = updated;
+        }
+        registration.close();
+    }
+
+    boolean hasSinks() {
+        return registrations.length > 0;
+    }
+
+    /**
+     * Capture thread only. {@code converter} makes the hand-off copy for asynchronous sinks;
+     * without one they share the frame itself.
+     */
+    void distribute(VideoFrame frame, PooledFrameConverter converter) {
+        Registration[] current = registrations;
+        if (current.length == 0) {
+            return;
+        }
+        long timestampNs = frame.getTimestampNs();
+        SharedFrame shared = null;
+        for (Registration registration : current) {
+            if (!registration.isDue(timestampNs)) {
+                continue;
+            }
+            if (registration.executor == null) {
+                registration.lastDeliveredNs = timestampNs;
+                registration.deliverInline(frame);
+                continue;
+            }
+            if (registration.sink.isBusy()) {
+                registration.dropped++;
+                continue;
+            }
+            if (shared == null) {
+                // The distributor holds one reference while dispatching, so sinks that finish
+                // early cannot release the frame before the others got it
+                shared = obtainShared(handoff(frame, converter));
+            }
+            if (registration.offer(shared)) {
+                registration.lastDeliveredNs = timestampNs;
+            }
+        }
+        if (shared != null) {
+            releaseShared(shared);
+        }
+    }
+
+    private static VideoFrame handoff(VideoFrame frame, PooledFrameConverter converter) {
+        if (converter != null) {
+            try {
+                return converter.copyForHandoff(frame);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Failed to copy frame for asynchronous sinks", e);
+            }
+        }
+        frame.retain();
+        return frame;
+    }
+
+    private SharedFrame obtainShared(VideoFrame frame) {
+        SharedFrame shared;
+        synchronized (framePool) {
+            shared = framePool.pollLast();
+        }
+        if (shared == null) {
+            shared = new SharedFrame();
+        }
+        shared.frame = frame;
+        shared.references.set(1);
+        return shared;
+    }
+
+    private void releaseShared(SharedFrame shared) {
+        if (shared.references.decrementAndGet() != 0) {
+            return;
+        }
+        VideoFrame frame = shared.frame;
+        shared.frame = null;
+        frame.release();
+        synchronized (framePool) {
+            if (framePool.size() < MAX_POOLED_FRAMES) {
+                framePool.addLast(shared);
+            }
+        }
+    }
+
+    private static final class SharedFrame {
+        VideoFrame frame;
+        final AtomicInteger references = new AtomicInteger();
+    }
+
+    final class Registration {
+        final Sink sink;
+        final Executor executor;
+        final boolean keepLatest;
+        private final long minIntervalNs;
+        private final Runnable deliverTask = this::deliverPending;
+        // Capture thread only
+        private long lastDeliveredNs = -1;
+        // Guarded by this
+        private boolean running;
+        private boolean closed;
+        private SharedFrame pending;
+        private SharedFrame queued;
+        private volatile long delivered;
+        private volatile long dropped;
+
+        private Registration(Sink sink, double maxFps, Executor executor, boolean keepLatest) {
+            this.sink = sink;
+            this.executor = executor;
+            this.keepLatest = keepLatest;
+            this.minIntervalNs = maxFps > 0 ? (long) (1_000_000_000L / maxFps) : 0;
+        }
+
+        long getDelivered() {
+            return delivered;
+        }
+
+        long getDropped() {
+            return dropped;
+        }
+
+        private boolean isDue(long timestampNs) {
+            // Allow a little early so timestamp jitter does not halve the rate
+            return minIntervalNs == 0 || lastDeliveredNs < 0 || timestampNs - lastDeliveredNs >= minIntervalNs - minIntervalNs / 8;
+        }
+
+        private void deliverInline(VideoFrame frame) {
+            try {
+                sink.onFrame(frame);
+                delivered++;
+            } catch (Exception e) {
+                Log.e(TAG, "Frame sink failed", e);
+            }
+        }
+
+        // Capture thread; returns false if the frame was dropped for this sink
+        private boolean offer(SharedFrame shared) {
+            SharedFrame replaced;
+            boolean dispatch;
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                if (running && !keepLatest) {
+                    dropped++;
+                    return false;
+                }
+                shared.references.incrementAndGet();
+                if (running) {
+                    replaced = queued;
+                    queued = shared;
+                    dispatch = false;
+                } else {
+                    replaced = null;
+                    pending = shared;
+                    running = true;
+                    dispatch = true;
+                }
+            }
+            if (replaced != null) {
+                dropped++;
+                releaseShared(replaced);
+            }
+            if (!dispatch) {
+                return true;
+            }
+            try {
+                executor.execute(deliverTask);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    pending = null;
+                    running = false;
+                    notifyAll();
+                }
+                dropped++;
+                releaseShared(shared);
+                return false;
+            }
+            return true;
+        }
+
+        private void deliverPending() {
+            while (true) {
+                SharedFrame shared;
+                synchronized (this) {
+                    shared = pending;
+                    pending = null;
+                }
+                if (shared == null) {
+                    return;
+                }
+                try {
+                    sink.onFrame(shared.frame);
+                    delivered++;
+                } catch (Exception e) {
+                    Log.e(TAG, "Frame sink failed", e);
+                } finally {
+                    releaseShared(shared);
+                }
+                synchronized (this) {
+                    pending = queued;
+                    queued = null;
+                    if (pending == null) {
+                        running = false;
+                        notifyAll();
+                        return;
+                    }
+                }
+            }
+        }
+
+        // Drops the queued frame and waits for the one being delivered, if any
+        private void close() {
+            SharedFrame shared;
+            boolean idle;
+            synchronized (this) {
+                closed = true;
+                shared = queued;
+                queued = null;
+                long deadlineNs = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(REMOVE_TIMEOUT_MS);
+                boolean interrupted = false;
+                while (running) {
+                    long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadlineNs - System.nanoTime());
+                    if (remainingMs <= 0) {
+                        break;
+                    }
+                    try {
+                        wait(remainingMs);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                idle = !running;
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (shared != null) {
+                releaseShared(shared);
+            }
+            if (!idle) {
+                Log.w(TAG, "Sink still busy " + REMOVE_TIMEOUT_MS + " ms after removal");
+            }
+        }
+    }
+}
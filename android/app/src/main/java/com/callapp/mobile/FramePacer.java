@@ -0,0 +1,178 @@
+package com.callapp.mobile;
+
+import android.view.Choreographer;
+
+import org.webrtc.CapturerObserver;
+import org.webrtc.VideoFrame;
+
+/**
+ * Evens out the frames coming from the virtual display before static frame detection and
+ * encoding. The display composes on vsync but only when something changed, so frames arrive in
+ * bursts and plain rate limiting drops them in clumps.
+ *
+ * Time is split into slots of one target frame interval, laid on the vsync grid reported by
+ * Choreographer on the capture thread. The first frame of each slot is forwarded and stamped
+ * with the slot time; later frames in the same slot are dropped. If the target rate is close
+ * to a whole fraction of the refresh rate, the slot is snapped to that many vsyncs so every
+ * forwarded frame covers the same number of compositions. Forwarding is never delayed; only
+ * timestamps move, by less than one slot.
+ *
+ * Jitter is tracked RFC 3550 style, as the smoothed change between consecutive frame
+ * intervals: on the incoming timestamps and on the timestamps handed to the encoder.
+ */
+final class FramePacer implements CapturerObserver {
+    private static final long VSYNC_RESAMPLE_NS = 1_000_000_000L;
+    private static final double SNAP_TOLERANCE = 0.1;
+
+    private final CapturerObserver downstream;
+    private final CaptureMetrics metrics;
+    private final long vsyncPeriodNs;
+    private volatile boolean enabled = true;
+    private volatile int targetFps;
+
+    // Capture thread only
+    private long vsyncNs = -1;
+    private long lastVsyncSampleNs = -1;
+    private boolean vsyncRequested;
+    private int gridFps;
+    private long slotIntervalNs;
+    private long gridOriginNs = -1;
+    private long lastSlotNs = -1;
+    private final JitterEstimator inputJitter = new JitterEstimator();
+    private final JitterEstimator outputJitter = new JitterEstimator();
+
+    private volatile long framesForwarded;
+    private volatile long framesDropped;
+
+    private final Choreographer.FrameCallback vsyncCallback = frameTimeNanos -> {
+        vsyncRequested = false;
+        vsyncNs = frameTimeNanos;
+        lastVsyncSampleNs = System.nanoTime();
+    };
+
+    FramePacer(CapturerObserver downstream, CaptureMetrics metrics, float refreshRate) {
+        this.downstream = downstream;
+        this.metrics = metrics;
+        this.vsyncPeriodNs = (long) (1_000_000_000L / (refreshRate > 0 ? refreshRate : 60));
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    void setTargetFps(int fps) {
+        this.targetFps = fps;
+    }
+
+    double getInputJitterMs() {
+        return inputJitter.jitterNs / 1e6;
+    }
+
+    double getOutputJitterMs() {
+        return outputJitter.jitterNs / 1e6;
+    }
+
+    long getFramesForwarded() {
+        return framesForwarded;
+    }
+
+    long getFramesDropped() {
+        return framesDropped;
+    }
+
+    @Override
+    public void onCapturerStarted(boolean success) {
+        downstream.onCapturerStarted(success);
+    }
+
+    @Override
+    public void onCapturerStopped() {
+        if (vsyncRequested) {
+            Choreographer.getInstance().removeFrameCallback(vsyncCallback);
+            vsyncRequested = false;
+        }
+        downstream.onCapturerStopped();
+    }
+
+    @Override
+    public void onFrameCaptured(VideoFrame frame) {
+        long timestampNs = frame.getTimestampNs();
+        inputJitter.add(timestampNs);
+        int fps = targetFps;
+        if (!enabled || fps <= 0) {
+            forward(frame, timestampNs);
+            return;
+        }
+        requestVsyncIfStale();
+        updateGrid(fps, timestampNs);
+
+        // Slot boundaries sit half a vsync before each slot time, so arrivals jittering
+        // around a vsync always land in the same slot
+        long slot = Math.floorDiv(timestampNs - gridOriginNs + vsyncPeriodNs / 2, slotIntervalNs);
+        long slotNs = gridOriginNs + slot * slotIntervalNs;
+        if (lastSlotNs >= 0 && slotNs < lastSlotNs + slotIntervalNs / 2) {
+            framesDropped++;
+            metrics.onFrameDropped();
+            return;
+        }
+        lastSlotNs = slotNs;
+        if (slotNs == timestampNs) {
+            forward(frame, timestampNs);
+            return;
+        }
+        // Shares the buffer without a new reference; whoever keeps the frame retains it
+        forward(new VideoFrame(frame.getBuffer(), frame.getRotation(), slotNs), slotNs);
+    }
+
+    private void forward(VideoFrame frame, long timestampNs) {
+        outputJitter.add(timestampNs);
+        framesForwarded++;
+        downstream.onFrameCaptured(frame);
+    }
+
+    private void requestVsyncIfStale() {
+        if (vsyncRequested || (lastVsyncSampleNs >= 0 && System.nanoTime() - lastVsyncSampleNs < VSYNC_RESAMPLE_NS)) {
+            return;
+        }
+        vsyncRequested = true;
+        Choreographer.getInstance().postFrameCallback(vsyncCallback);
+    }
+
+    private void updateGrid(int fps, long timestampNs) {
+        if (fps != gridFps) {
+            gridFps = fps;
+            double vsyncsPerSlot = 1e9 / fps / vsyncPeriodNs;
+            long snapped = Math.round(vsyncsPerSlot);
+            slotIntervalNs = snapped >= 1 && Math.abs(vsyncsPerSlot - snapped) < SNAP_TOLERANCE
+                ? snapped * vsyncPeriodNs
+                : 1_000_000_000L / fps;
+            gridOriginNs = -1;
+            lastSlotNs = -1;
+        }
+        if (gridOriginNs < 0) {
+            gridOriginNs = vsyncNs >= 0 ? vsyncNs : timestampNs;
+        } else if (vsyncNs >= 0) {
+            // Follow vsync drift without moving the grid by whole vsyncs, which would make
+            // one slot longer or shorter than the others
+            long offset = Math.floorMod(vsyncNs - gridOriginNs, vsyncPeriodNs);
+            gridOriginNs += offset > vsyncPeriodNs / 2 ? offset - vsyncPeriodNs : offset;
+        }
+    }
+
+    private static final class JitterEstimator {
+        private long lastTimestampNs = -1;
+        private long lastIntervalNs = -1;
+        volatile double jitterNs;
+
+        void add(long timestampNs) {
+            if (lastTimestampNs >= 0) {
+                long intervalNs = timestampNs - lastTimestampNs;
+                if (lastIntervalNs >= 0) {
+                    jitterNs += (Math.abs(intervalNs - lastIntervalNs) - jitterNs) / 16;
+                }
+                lastIntervalNs = intervalNs;
+            }
+            lastTimestampNs = timestampNs;
+        }
+    }
+}
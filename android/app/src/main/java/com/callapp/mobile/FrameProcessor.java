@@ -0,0 +1,12 @@
+package com.callapp.mobile;
+
+import org.webrtc.VideoFrame;
+
+/**
+ * CPU-side consumer of screen capture frames (watermarking, thumbnails, analysis). Called on
+ * the capture thread after the frame has been handed to the encoder; use the converter to get
+ * pooled I420 data instead of calling toI420() on the frame buffer.
+ */
+interface FrameProcessor {
+    void onFrame(VideoFrame frame, PooledFrameConverter converter);
+}
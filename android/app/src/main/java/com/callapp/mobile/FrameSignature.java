@@ -0,0 +1,41 @@
+package com.callapp.mobile;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Low resolution luma snapshot of a frame, used to tell whether the screen changed.
+ * Plain Java on purpose so it can be exercised off-device.
+ */
+final class FrameSignature {
+    final int width;
+    final int height;
+    final byte[] luma;
+    private boolean valid;
+
+    FrameSignature(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.luma = new byte[width * height];
+    }
+
+    /** Copies a {@code width x height} luma plane into this signature without allocating. */
+    void capture(ByteBuffer plane, int stride) {
+        for (int row = 0; row < height; row++) {
+            int src = row * stride;
+            int dst = row * width;
+            for (int col = 0; col < width; col++) {
+                luma[dst + col] = plane.get(src + col);
+            }
+        }
+        valid = true;
+    }
+
+    boolean isValid() {
+        return valid;
+    }
+
+    void invalidate() {
+        valid = false;
+    }
+
+}
@@ -0,0 +1,357 @@
+package com.callapp.mobile;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.opengl.GLES20;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.Surface;
+
+import org.webrtc.EglBase;
+import org.webrtc.GlRectDrawer;
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoFrameDrawer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records capture frames to an MP4 file without reading them back to the CPU: each texture
+ * frame is drawn into the input surface of a MediaCodec encoder on an EGL context shared
+ * with the capture thread, and the encoded samples are written to disk as they come out.
+ *
+ * Frames arrive through the FrameDistributor on the recorder thread as GPU copies, so the
+ * capture texture itself is never held here. The copy is handed back as soon as it has been
+ * drawn; swapping and draining the encoder follow as a separate task, and the recorder reports
+ * itself busy until then, so frames arriving while storage is slow are dropped instead of
+ * holding back the live WebRTC path.
+ *
+ * The encoder size is fixed by the first frame; later frames of another size (rotation,
+ * capture format changes) are letterboxed into it. MediaMuxer only writes the MP4 index
+ * when it is stopped, so the recording is split into segments of segmentDurationSec: at the
+ * first key frame past the limit the muxer is closed and a new file is started, and a crash
+ * loses at most the segment in progress.
+ */
+class LocalScreenRecorder implements FrameDistributor.Sink {
+    private static final String TAG = "LocalScreenRecorder";
+    private static final String MIME_TYPE = MediaFormat.MIMETYPE_VIDEO_AVC;
+    private static final long DRAIN_TIMEOUT_US = 10_000;
+    private static final int MAX_EOS_WAITS = 100;
+
+    interface OnStoppedListener {
+        void onStopped(long framesRecorded, Exception error);
+    }
+
+    private final String path;
+    private final EglBase.Context sharedContext;
+    private final int bitrate;
+    private final int fps;
+    private final int keyFrameIntervalSec;
+    private final long segmentDurationUs;
+    private final HandlerThread thread = new HandlerThread("ScreenRecorderThread");
+    private final AtomicBoolean finishing = new AtomicBoolean();
+    private final MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+    private final Runnable finishFrameTask = this::finishFrame;
+    private Handler handler;
+    private volatile boolean running;
+
+    // Recorder thread only
+    private MediaMuxer muxer;
+    private MediaFormat outputFormat;
+    private final List<String> segmentPaths = new ArrayList<>();
+    private long segmentStartUs = -1;
+    private boolean syncFrameRequested;
+    private Exception muxerError;
+    private MediaCodec encoder;
+    private Surface inputSurface;
+    private EglBase eglBase;
+    private GlRectDrawer drawer;
+    private VideoFrameDrawer frameDrawer;
+    private int width;
+    private int height;
+    private int trackIndex = -1;
+    private boolean muxerStarted;
+    private long firstTimestampNs = -1;
+    private long pendingTimestampNs;
+    private long framesRecorded;
+
+    /** A segmentDurationSec of 0 records everything into a single file. */
+    LocalScreenRecorder(String path, EglBase.Context sharedContext, int bitrate, int fps, int keyFrameIntervalSec,
+                        int segmentDurationSec) {
+        this.path = path;
+        this.sharedContext = sharedContext;
+        this.bitrate = bitrate;
+        this.fps = fps;
+        this.keyFrameIntervalSec = keyFrameIntervalSec;
+        this.segmentDurationUs = segmentDurationSec * 1_000_000L;
+    }
+
+    void start() throws IOException {
+        muxer = new MediaMuxer(path, MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        segmentPaths.add(path);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        running = true;
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    /** Files written so far, oldest first; read from the OnStoppedListener callback. */
+    List<String> getSegmentPaths() {
+        return new ArrayList<>(segmentPaths);
+    }
+
+    /** Runs tasks on the recorder thread; register the recorder with this executor. */
+    Executor getExecutor() {
+        return command -> {
+            if (!handler.post(command)) {
+                throw new RejectedExecutionException("Recorder thread has quit");
+            }
+        };
+    }
+
+    @Override
+    public boolean isBusy() {
+        return finishing.get();
+    }
+
+    // Recorder thread
+    @Override
+    public void onFrame(VideoFrame frame) {
+        if (!running) {
+            return;
+        }
+        try {
+            drawFrame(frame);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to record frame", e);
+            return;
+        }
+        finishing.set(true);
+        handler.post(finishFrameTask);
+    }
+
+    void stop(OnStoppedListener listener) {
+        running = false;
+        handler.post(() -> {
+            Exception error = null;
+            try {
+                if (encoder != null) {
+                    drainEncoder(true);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to finish recording", e);
+                error = e;
+            } finally {
+                releaseResources();
+                thread.quitSafely();
+            }
+            if (error == null) {
+                error = muxerError;
+            }
+            Log.d(TAG, "Recording stopped: " + framesRecorded + " frames recorded");
+            listener.onStopped(framesRecorded, error);
+        });
+    }
+
+    private void drawFrame(VideoFrame frame) throws IOException {
+        if (encoder == null) {
+            setupEncoder(frame.getRotatedWidth(), frame.getRotatedHeight());
+        }
+        GLES20.glClearColor(0f, 0f, 0f, 1f);
+        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        // Letterbox frames whose size no longer matches the encoder
+        int frameWidth = frame.getRotatedWidth();
+        int frameHeight = frame.getRotatedHeight();
+        float scale = Math.min((float) width / frameWidth, (float) height / frameHeight);
+        int drawWidth = Math.min(width, Math.round(frameWidth * scale));
+        int drawHeight = Math.min(height, Math.round(frameHeight * scale));
+        frameDrawer.drawFrame(frame, drawer, null,
+                (width - drawWidth) / 2, (height - drawHeight) / 2, drawWidth, drawHeight);
+        // Make sure the GPU is done with the copy before it goes back to the pool
+        GLES20.glFinish();
+        pendingTimestampNs = frame.getTimestampNs();
+    }
+
+    private void finishFrame() {
+        try {
+            if (encoder == null) {
+                return;
+            }
+            if (firstTimestampNs < 0) {
+                firstTimestampNs = pendingTimestampNs;
+            }
+            eglBase.swapBuffers(pendingTimestampNs - firstTimestampNs);
+            framesRecorded++;
+            drainEncoder(false);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to record frame", e);
+        } finally {
+            finishing.set(false);
+        }
+    }
+
+    private void setupEncoder(int frameWidth, int frameHeight) throws IOException {
+        // Hardware AVC encoders are happiest with 16-aligned dimensions
+        width = Math.max(16, frameWidth & ~15);
+        height = Math.max(16, frameHeight & ~15);
+
+        MediaFormat format = MediaFormat.createVideoFormat(MIME_TYPE, width, height);
+        format.setInteger(MediaFormat.KEY_COLOR_FORMAT, MediaCodecInfo.CodecCapabilities.COLOR_FormatSurface);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, bitrate);
+        format.setInteger(MediaFormat.KEY_FRAME_RATE, fps);
+        format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, keyFrameIntervalSec);
+
+        encoder = MediaCodec.createEncoderByType(MIME_TYPE);
+        encoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+        inputSurface = encoder.createInputSurface();
+        encoder.start();
+
+        eglBase = EglBase.create(sharedContext, EglBase.CONFIG_RECORDABLE);
+        eglBase.createSurface(inputSurface);
+        eglBase.makeCurrent();
+        drawer = new GlRectDrawer();
+        frameDrawer = new VideoFrameDrawer();
+        Log.d(TAG, "Recording " + width + "x" + height + " to " + path);
+    }
+
+    private void drainEncoder(boolean endOfStream) {
+        if (endOfStream) {
+            encoder.signalEndOfInputStream();
+        }
+        int eosWaits = 0;
+        while (true) {
+            int index = encoder.dequeueOutputBuffer(bufferInfo, endOfStream ? DRAIN_TIMEOUT_US : 0);
+            if (index == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                if (!endOfStream || ++eosWaits > MAX_EOS_WAITS) {
+                    return;
+                }
+            } else if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                outputFormat = encoder.getOutputFormat();
+                trackIndex = muxer.addTrack(outputFormat);
+                muxer.start();
+                muxerStarted = true;
+            } else if (index >= 0) {
+                ByteBuffer data = encoder.getOutputBuffer(index);
+                boolean codecConfig = (bufferInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0;
+                if (!codecConfig && bufferInfo.size > 0 && muxerStarted) {
+                    maybeStartSegment();
+                }
+                if (data != null && !codecConfig && bufferInfo.size > 0 && muxerStarted) {
+                    data.position(bufferInfo.offset);
+                    data.limit(bufferInfo.offset + bufferInfo.size);
+                    muxer.writeSampleData(trackIndex, data, bufferInfo);
+                }
+                encoder.releaseOutputBuffer(index, false);
+                if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Called for each sample before it is written; switches files on a key frame
+    private void maybeStartSegment() {
+        long ptsUs = bufferInfo.presentationTimeUs;
+        if (segmentStartUs < 0) {
+            segmentStartUs = ptsUs;
+        }
+        if (segmentDurationUs <= 0 || ptsUs - segmentStartUs < segmentDurationUs) {
+            return;
+        }
+        if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_KEY_FRAME) == 0) {
+            if (!syncFrameRequested) {
+                Bundle params = new Bundle();
+                params.putInt(MediaCodec.PARAMETER_KEY_REQUEST_SYNC_FRAME, 0);
+                encoder.setParameters(params);
+                syncFrameRequested = true;
+            }
+            return;
+        }
+        stopMuxer();
+        String segmentPath = segmentPath(segmentPaths.size());
+        try {
+            muxer = new MediaMuxer(segmentPath, MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+            trackIndex = muxer.addTrack(outputFormat);
+            muxer.start();
+            muxerStarted = true;
+            segmentPaths.add(segmentPath);
+            Log.d(TAG, "Recording segment " + segmentPath);
+        } catch (Exception e) {
+            // Keep encoding so the stop path stays the same, but nothing more is written
+            Log.e(TAG, "Failed to start recording segment " + segmentPath, e);
+            muxerError = e;
+            if (muxer != null) {
+                muxer.release();
+                muxer = null;
+            }
+        }
+        segmentStartUs = ptsUs;
+        syncFrameRequested = false;
+    }
+
+    // recording.mp4, recording-1.mp4, recording-2.mp4, ...
+    private String segmentPath(int index) {
+        int dot = path.lastIndexOf('.');
+        if (dot <= path.lastIndexOf('/')) {
+            return path + "-" + index;
+        }
+        return path.substring(0, dot) + "-" + index + path.substring(dot);
+    }
+
+    private void stopMuxer() {
+        if (muxer == null) {
+            return;
+        }
+        try {
+            if (muxerStarted) {
+                muxer.stop();
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Muxer stop failed", e);
+        }
+        muxer.release();
+        muxer = null;
+        muxerStarted = false;
+    }
+
+    private void releaseResources() {
+        if (encoder != null) {
+            try {
+                encoder.stop();
+            } catch (Exception e) {
+                Log.w(TAG, "Encoder stop failed", e);
+            }
+            encoder.release();
+            encoder = null;
+        }
+        stopMuxer();
+        if (frameDrawer != null) {
+            frameDrawer.release();
+            frameDrawer = null;
+        }
+        if (drawer != null) {
+            drawer.release();
+            drawer = null;
+        }
+        if (eglBase != null) {
+            eglBase.release();
+            eglBase = null;
+        }
+        if (inputSurface != null) {
+            inputSurface.release();
+            inputSurface = null;
+        }
+    }
+}
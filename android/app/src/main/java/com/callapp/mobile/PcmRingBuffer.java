@@ -0,0 +1,77 @@
+package com.callapp.mobile;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-producer, single-consumer ring of 16-bit PCM samples. The producer and consumer
+ * each own one position counter and only publish it with an ordered store, so neither side
+ * takes a lock or allocates. Plain Java so it can be exercised off-device.
+ */
+final class PcmRingBuffer {
+    private final short[] samples;
+    private final int mask;
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+
+    /** Capacity is rounded up to a power of two. */
+    PcmRingBuffer(int minCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, minCapacity) - 1) << 1;
+        this.samples = new short[capacity];
+        this.mask = capacity - 1;
+    }
+
+    int capacity() {
+        return samples.length;
+    }
+
+    int available() {
+        return (int) (writePosition.get() - readPosition.get());
+    }
+
+    /** Producer side. Writes as many samples as fit and returns that count. */
+    int write(short[] src, int offset, int count) {
+        long write = writePosition.get();
+        int free = samples.length - (int) (write - readPosition.get());
+        int n = Math.min(count, free);
+        if (n <= 0) {
+            return 0;
+        }
+        int start = (int) (write & mask);
+        int first = Math.min(n, samples.length - start);
+        System.arraycopy(src, offset, samples, start, first);
+        System.arraycopy(src, offset + first, samples, 0, n - first);
+        writePosition.lazySet(write + n);
+        return n;
+    }
+
+    /** Consumer side. Reads up to {@code count} samples and returns how many were read. */
+    int read(short[] dst, int offset, int count) {
+        long read = readPosition.get();
+        int n = Math.min(count, (int) (writePosition.get() - read));
+        if (n <= 0) {
+            return 0;
+        }
+        int start = (int) (read & mask);
+        int first = Math.min(n, samples.length - start);
+        System.arraycopy(samples, start, dst, offset, first);
+        System.arraycopy(samples, 0, dst, offset + first, n - first);
+        readPosition.lazySet(read + n);
+        return n;
+    }
+
+    /** Consumer side. Drops up to {@code count} of the oldest samples to bound latency. */
+    int skip(int count) {
+        long read = readPosition.get();
+        int n = Math.min(count, (int) (writePosition.get() - read));
+        if (n > 0) {
+            readPosition.lazySet(read + n);
+        }
+        return Math.max(0, n);
+    }
+
+    /** Only call while neither side is running. */
+    void clear() {
+        writePosition.set(0);
+        readPosition.set(0);
+    }
+}
@@ -0,0 +1,236 @@
+package com.callapp.mobile;
+
+import android.annotation.SuppressLint;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioPlaybackCaptureConfiguration;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.media.projection.MediaProjection;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Captures what other apps are playing through the screen share's MediaProjection, optionally
+ * mixed with the microphone, and hands it out as 10 ms PCM frames.
+ *
+ * Each AudioRecord is drained by its own thread into a PcmRingBuffer; a frame thread takes
+ * 10 ms at a time from the rings, mixes and delivers it. All buffers are allocated in
+ * start(), so the steady state allocates nothing. If the consumer falls behind, the oldest
+ * audio is skipped so latency stays under MAX_LATENCY_MS.
+ * Requires API 29 and RECORD_AUDIO.
+ */
+final class PlaybackAudioCapture {
+    private static final String TAG = "PlaybackAudioCapture";
+    static final int FRAME_MS = 10;
+    private static final int MAX_LATENCY_MS = 60;
+    private static final int RING_MS = 200;
+
+    /** Receives every 10 ms frame on the frame thread. The array is reused; copy what you keep. */
+    interface AudioFrameSink {
+        void onAudioFrame(short[] samples, int samplesPerChannel, int channels, int sampleRate, long timestampNs);
+    }
+
+    private final MediaProjection mediaProjection;
+    private final int sampleRate;
+    private final int channels;
+    private final boolean mixMicrophone;
+    private final int frameSamples;
+    private volatile AudioFrameSink sink;
+    private volatile boolean running;
+
+    private AudioRecord playbackRecord;
+    private AudioRecord microphoneRecord;
+    private PcmRingBuffer playbackRing;
+    private PcmRingBuffer microphoneRing;
+    private Thread playbackThread;
+    private Thread microphoneThread;
+    private Thread frameThread;
+
+    private volatile long framesDelivered;
+    private final AtomicLong samplesOverrun = new AtomicLong();
+    private volatile long samplesSkipped;
+
+    PlaybackAudioCapture(MediaProjection mediaProjection, int sampleRate, int channels, boolean mixMicrophone) {
+        this.mediaProjection = mediaProjection;
+        this.sampleRate = sampleRate;
+        this.channels = channels == 2 ? 2 : 1;
+        this.mixMicrophone = mixMicrophone;
+        this.frameSamples = sampleRate / (1000 / FRAME_MS) * this.channels;
+    }
+
+    void setSink(AudioFrameSink sink) {
+        this.sink = sink;
+    }
+
+    // RECORD_AUDIO is checked by the module before starting
+    @SuppressLint("MissingPermission")
+    void start() {
+        AudioFormat format = new AudioFormat.Builder()
+            .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+            .setSampleRate(sampleRate)
+            .setChannelMask(channels == 2 ? AudioFormat.CHANNEL_IN_STEREO : AudioFormat.CHANNEL_IN_MONO)
+            .build();
+        int bufferBytes = Math.max(AudioRecord.getMinBufferSize(sampleRate, format.getChannelMask(), AudioFormat.ENCODING_PCM_16BIT),
+            frameSamples * 2 * 4);
+        int ringSamples = sampleRate * channels * RING_MS / 1000;
+
+        AudioPlaybackCaptureConfiguration captureConfig = new AudioPlaybackCaptureConfiguration.Builder(mediaProjection)
+            .addMatchingUsage(AudioAttributes.USAGE_MEDIA)
+            .addMatchingUsage(AudioAttributes.USAGE_GAME)
+            .addMatchingUsage(AudioAttributes.USAGE_UNKNOWN)
+            .build();
+        playbackRecord = new AudioRecord.Builder()
+            .setAudioPlaybackCaptureConfig(captureConfig)
+            .setAudioFormat(format)
+            .setBufferSizeInBytes(bufferBytes)
+            .build();
+        playbackRing = new PcmRingBuffer(ringSamples);
+
+        if (mixMicrophone) {
+            microphoneRecord = new AudioRecord.Builder()
+                .setAudioSource(MediaRecorder.AudioSource.VOICE_COMMUNICATION)
+                .setAudioFormat(format)
+                .setBufferSizeInBytes(bufferBytes)
+                .build();
+            microphoneRing = new PcmRingBuffer(ringSamples);
+        }
+
+        running = true;
+        playbackRecord.startRecording();
+        playbackThread = startReader(playbackRecord, playbackRing, "PlaybackAudioThread");
+        if (microphoneRecord != null) {
+            microphoneRecord.startRecording();
+            microphoneThread = startReader(microphoneRecord, microphoneRing, "MicAudioThread");
+        }
+        frameThread = new Thread(this::deliverFrames, "AudioFrameThread");
+        frameThread.start();
+        Log.d(TAG, "Playback capture started at " + sampleRate + "Hz x" + channels + (mixMicrophone ? " with microphone" : ""));
+    }
+
+    void stop() {
+        running = false;
+        // stop() unblocks the readers' read() calls
+        stopRecord(playbackRecord);
+        stopRecord(microphoneRecord);
+        joinQuietly(playbackThread);
+        joinQuietly(microphoneThread);
+        joinQuietly(frameThread);
+        releaseRecord(playbackRecord);
+        releaseRecord(microphoneRecord);
+        playbackRecord = null;
+        microphoneRecord = null;
+        Log.d(TAG, "Playback capture stopped after " + framesDelivered + " frames, overrun=" + samplesOverrun.get() + " skipped=" + samplesSkipped);
+    }
+
+    long getFramesDelivered() {
+        return framesDelivered;
+    }
+
+    long getSamplesOverrun() {
+        return samplesOverrun.get();
+    }
+
+    long getSamplesSkipped() {
+        return samplesSkipped;
+    }
+
+    private Thread startReader(AudioRecord record, PcmRingBuffer ring, String name) {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+            short[] chunk = new short[frameSamples];
+            while (running) {
+                int read = record.read(chunk, 0, chunk.length);
+                if (read <= 0) {
+                    if (read < 0) {
+                        Log.e(TAG, name + " read failed: " + read);
+                        return;
+                    }
+                    continue;
+                }
+                int written = ring.write(chunk, 0, read);
+                if (written < read) {
+                    samplesOverrun.addAndGet(read - written);
+                }
+            }
+        }, name);
+        thread.start();
+        return thread;
+    }
+
+    private void deliverFrames() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        short[] frame = new short[frameSamples];
+        short[] microphone = mixMicrophone ? new short[frameSamples] : null;
+        int maxBacklog = sampleRate * channels * MAX_LATENCY_MS / 1000;
+        long parkNs = FRAME_MS * 1_000_000L / 4;
+
+        while (running) {
+            int backlog = playbackRing.available();
+            if (backlog > maxBacklog) {
+                // Keep the newest audio; round to whole sample frames so channels stay aligned
+                int excess = backlog - frameSamples;
+                samplesSkipped += playbackRing.skip(excess - excess % channels);
+            }
+            if (playbackRing.available() < frameSamples) {
+                LockSupport.parkNanos(parkNs);
+                continue;
+            }
+            playbackRing.read(frame, 0, frameSamples);
+            if (microphone != null) {
+                if (microphoneRing.available() > maxBacklog) {
+                    int excess = microphoneRing.available() - frameSamples;
+                    microphoneRing.skip(excess - excess % channels);
+                }
+                if (microphoneRing.available() >= frameSamples) {
+                    microphoneRing.read(microphone, 0, frameSamples);
+                    mix(frame, microphone);
+                }
+            }
+
+            framesDelivered++;
+            AudioFrameSink current = sink;
+            if (current != null) {
+                current.onAudioFrame(frame, frameSamples / channels, channels, sampleRate, System.nanoTime());
+            }
+        }
+    }
+
+    // Sums with saturation; playback audio is usually far below full scale, so no gain is applied
+    private static void mix(short[] target, short[] source) {
+        for (int i = 0; i < target.length; i++) {
+            int sum = target[i] + source[i];
+            target[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sum));
+        }
+    }
+
+    private static void stopRecord(AudioRecord record) {
+        if (record != null && record.getRecordingState() == AudioRecord.RECORDSTATE_RECORDING) {
+            try {
+                record.stop();
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "AudioRecord already stopped", e);
+            }
+        }
+    }
+
+    private static void releaseRecord(AudioRecord record) {
+        if (record != null) {
+            record.release();
+        }
+    }
+
+    private static void joinQuietly(Thread thread) {
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.callapp.mobile;
+
+import android.graphics.Matrix;
+import android.opengl.GLES20;
+import android.os.Handler;
+import android.os.Looper;
+
+import org.webrtc.GlRectDrawer;
+import org.webrtc.GlTextureFrameBuffer;
+import org.webrtc.TextureBufferImpl;
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoFrameDrawer;
+import org.webrtc.YuvConverter;
+import org.webrtc.YuvHelper;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Converts capture frames into pooled I420 buffers for CPU-side processing.
+ *
+ * Texture frames are drawn into an RGBA framebuffer and read back into a reused scratch
+ * buffer, then converted with libyuv into a pooled I420 buffer, so steady-state conversion
+ * does not allocate (VideoFrame.Buffer#toI420 allocates a fresh buffer for every call).
+ * I420 frames are copied, or point-sampled when scaled, straight into a pooled buffer.
+ * Texture frames that leave the capture thread are copied into pooled RGB textures (see
+ * copyForHandoff). Must be used on the capture thread, where the shared EGL context is current.
+ */
+final class PooledFrameConverter {
+    private static final int MAX_BUFFERS_PER_RESOLUTION = 3;
+
+    private final FrameBufferPool<PooledI420Buffer> i420Pool = PooledI420Buffer.createPool(MAX_BUFFERS_PER_RESOLUTION);
+    private final Matrix renderMatrix = new Matrix();
+    private GlTextureFrameBuffer frameBuffer;
+    private GlRectDrawer drawer;
+    private ByteBuffer rgbaScratch;
+    private final Matrix identityMatrix = new Matrix();
+    // Texture copies handed to other threads come back here when their frame is released
+    private final ArrayDeque<GlTextureFrameBuffer> freeCopies = new ArrayDeque<>();
+    private Handler captureHandler;
+    private YuvConverter yuvConverter;
+    private boolean released;
+
+    PooledFrameConverter() {
+        // glReadPixels returns rows bottom-up
+        renderMatrix.preTranslate(0.5f, 0.5f);
+        renderMatrix.preScale(1f, -1f);
+        renderMatrix.preTranslate(-0.5f, -0.5f);
+    }
+
+    PooledI420Buffer toI420(VideoFrame.Buffer buffer) {
+        return toI420(buffer, buffer.getWidth(), buffer.getHeight());
+    }
+
+    /** Converts {@code buffer} scaled to {@code width x height}. Release the result when done. */
+    PooledI420Buffer toI420(VideoFrame.Buffer buffer, int width, int height) {
+        if (buffer instanceof VideoFrame.TextureBuffer) {
+            return readTexture((VideoFrame.TextureBuffer) buffer, width, height);
+        }
+        if (buffer instanceof VideoFrame.I420Buffer) {
+            VideoFrame.I420Buffer i420 = (VideoFrame.I420Buffer) buffer;
+            if (buffer.getWidth() == width && buffer.getHeight() == height) {
+                return copyI420(i420);
+            }
+            return sampleI420(i420, width, height);
+        }
+
+        // Other buffer types or CPU scaling: let WebRTC convert, then copy into the pool
+        VideoFrame.Buffer scaled = buffer.cropAndScale(0, 0, buffer.getWidth(), buffer.getHeight(), width, height);
+        VideoFrame.I420Buffer i420 = scaled.toI420();
+        scaled.release();
+        try {
+            return copyI420(i420);
+        } finally {
+            i420.release();
+        }
+    }
+
+    /** Writes {@code src} as NV12, or NV21 when {@code swapUV} is set, into preallocated planes. */
+    static void toNV12(VideoFrame.I420Buffer src, ByteBuffer dstY, ByteBuffer dstUV, boolean swapUV) {
+        int width = src.getWidth();
+        int uvStride = ((width + 1) / 2) * 2;
+        YuvHelper.I420ToNV12(
+            src.getDataY(), src.getStrideY(),
+            swapUV ? src.getDataV() : src.getDataU(), swapUV ? src.getStrideV() : src.getStrideU(),
+            swapUV ? src.getDataU() : src.getDataV(), swapUV ? src.getStrideU() : src.getStrideV(),
+            dstY, width, dstUV, uvStride, width, src.getHeight());
+    }
+
+    long getCreatedBufferCount() {
+        return i420Pool.getCreatedCount();
+    }
+
+    long getReusedBufferCount() {
+        return i420Pool.getReusedCount();
+    }
+
+    /**
+     * Returns a frame that can be held on another thread without holding the capture texture:
+     * SurfaceTextureHelper cannot deliver the next frame until the current one is released, so
+     * texture frames are drawn into a pooled RGB texture and the copy is returned. Other frames
+     * are retained and returned as they are. The result may be released on any thread, but
+     * must be released before {@link #release()}.
+     */
+    VideoFrame copyForHandoff(VideoFrame frame) {
+        VideoFrame.Buffer buffer = frame.getBuffer();
+        if (!(buffer instanceof VideoFrame.TextureBuffer)) {
+            frame.retain();
+            return frame;
+        }
+        if (drawer == null) {
+            drawer = new GlRectDrawer();
+        }
+        if (captureHandler == null) {
+            captureHandler = new Handler(Looper.myLooper());
+            yuvConverter = new YuvConverter();
+        }
+        GlTextureFrameBuffer copy;
+        synchronized (freeCopies) {
+            copy = freeCopies.pollFirst();
+        }
+        if (copy == null) {
+            copy = new GlTextureFrameBuffer(GLES20.GL_RGBA);
+        }
+        int width = buffer.getWidth();
+        int height = buffer.getHeight();
+        copy.setSize(width, height);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, copy.getFrameBufferId());
+        VideoFrameDrawer.drawTexture(drawer, (VideoFrame.TextureBuffer) buffer, identityMatrix, width, height, 0, 0, width, height);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        // The copy is sampled from another EGL context; it has to be complete before it leaves
+        GLES20.glFinish();
+
+        GlTextureFrameBuffer target = copy;
+        TextureBufferImpl copyBuffer = new TextureBufferImpl(width, height, VideoFrame.TextureBuffer.Type.RGB,
+            target.getTextureId(), new Matrix(), captureHandler, yuvConverter, () -> {
+                synchronized (freeCopies) {
+                    if (!released) {
+                        freeCopies.addLast(target);
+                    }
+                }
+            });
+        return new VideoFrame(copyBuffer, frame.getRotation(), frame.getTimestampNs());
+    }
+
+    /** Frees GL resources; call on the capture thread. */
+    void release() {
+        synchronized (freeCopies) {
+            released = true;
+            for (GlTextureFrameBuffer copy : freeCopies) {
+                copy.release();
+            }
+            freeCopies.clear();
+        }
+        if (yuvConverter != null) {
+            yuvConverter.release();
+            yuvConverter = null;
+        }
+        if (frameBuffer != null) {
+            frameBuffer.release();
+            frameBuffer = null;
+        }
+        if (drawer != null) {
+            drawer.release();
+            drawer = null;
+        }
+        rgbaScratch = null;
+        i420Pool.clear();
+    }
+
+    private PooledI420Buffer readTexture(VideoFrame.TextureBuffer texture, int width, int height) {
+        if (frameBuffer == null) {
+            frameBuffer = new GlTextureFrameBuffer(GLES20.GL_RGBA);
+        }
+        if (drawer == null) {
+            drawer = new GlRectDrawer();
+        }
+        int rgbaSize = width * height * 4;
+        if (rgbaScratch == null || rgbaScratch.capacity() < rgbaSize) {
+            rgbaScratch = ByteBuffer.allocateDirect(rgbaSize);
+        }
+
+        frameBuffer.setSize(width, height);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, frameBuffer.getFrameBufferId());
+        VideoFrameDrawer.drawTexture(drawer, texture, renderMatrix, width, height, 0, 0, width, height);
+        rgbaScratch.clear();
+        GLES20.glReadPixels(0, 0, width, height, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, rgbaScratch);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+
+        PooledI420Buffer out = PooledI420Buffer.acquire(i420Pool, width, height);
+        // libyuv's ABGR is R, G, B, A in memory, which is what GL_RGBA reads back
+        YuvHelper.ABGRToI420(rgbaScratch, width * 4,
+            out.getDataY(), out.getStrideY(),
+            out.getDataU(), out.getStrideU(),
+            out.getDataV(), out.getStrideV(),
+            width, height);
+        return out;
+    }
+
+    // cropAndScale on an I420 buffer scales into a newly allocated one; sampling into the pool
+    // avoids that, and is cheap at the small sizes processors and the static frame filter use
+    private PooledI420Buffer sampleI420(VideoFrame.I420Buffer src, int width, int height) {
+        PooledI420Buffer out = PooledI420Buffer.acquire(i420Pool, width, height);
+        int srcChromaWidth = (src.getWidth() + 1) / 2;
+        int srcChromaHeight = (src.getHeight() + 1) / 2;
+        int chromaWidth = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        samplePlane(src.getDataY(), src.getStrideY(), src.getWidth(), src.getHeight(), out.getDataY(), out.getStrideY(), width, height);
+        samplePlane(src.getDataU(), src.getStrideU(), srcChromaWidth, srcChromaHeight, out.getDataU(), out.getStrideU(), chromaWidth, chromaHeight);
+        samplePlane(src.getDataV(), src.getStrideV(), srcChromaWidth, srcChromaHeight, out.getDataV(), out.getStrideV(), chromaWidth, chromaHeight);
+        return out;
+    }
+
+    // Takes the pixel nearest to the center of each destination pixel
+    private static void samplePlane(ByteBuffer src, int srcStride, int srcWidth, int srcHeight,
+            ByteBuffer dst, int dstStride, int dstWidth, int dstHeight) {
+        for (int row = 0; row < dstHeight; row++) {
+            int srcRow = (int) ((2L * row + 1) * srcHeight / (2L * dstHeight)) * srcStride;
+            int dstRow = row * dstStride;
+            for (int col = 0; col < dstWidth; col++) {
+                int srcCol = (int) ((2L * col + 1) * srcWidth / (2L * dstWidth));
+                dst.put(dstRow + col, src.get(srcRow + srcCol));
+            }
+        }
+    }
+
+    private PooledI420Buffer copyI420(VideoFrame.I420Buffer src) {
+        PooledI420Buffer out = PooledI420Buffer.acquire(i420Pool, src.getWidth(), src.getHeight());
+        YuvHelper.I420Copy(
+            src.getDataY(), src.getStrideY(),
+            src.getDataU(), src.getStrideU(),
+            src.getDataV(), src.getStrideV(),
+            out.getDataY(), out.getStrideY(),
+            out.getDataU(), out.getStrideU(),
+            out.getDataV(), out.getStrideV(),
+            src.getWidth(), src.getHeight());
+        return out;
+    }
+}
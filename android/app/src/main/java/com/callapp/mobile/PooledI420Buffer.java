@@ -0,0 +1,128 @@
+package com.callapp.mobile;
+
+import org.webrtc.JavaI420Buffer;
+import org.webrtc.VideoFrame;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ref-counted I420 buffer backed by one direct ByteBuffer that goes back to its pool when the
+ * last reference is released. The plane slices are created once with the buffer, so a
+ * recycled instance is handed out again without any allocation.
+ */
+final class PooledI420Buffer implements VideoFrame.I420Buffer {
+    private final FrameBufferPool<PooledI420Buffer> pool;
+    private final int width;
+    private final int height;
+    private final int strideY;
+    private final int strideUV;
+    private final ByteBuffer dataY;
+    private final ByteBuffer dataU;
+    private final ByteBuffer dataV;
+    private final AtomicInteger refCount = new AtomicInteger();
+
+    static FrameBufferPool<PooledI420Buffer> createPool(int maxBuffersPerResolution) {
+        PoolFactory factory = new PoolFactory();
+        factory.pool = new FrameBufferPool<>(factory, maxBuffersPerResolution);
+        return factory.pool;
+    }
+
+    /** Takes a buffer out of {@code pool} with a reference count of one. */
+    static PooledI420Buffer acquire(FrameBufferPool<PooledI420Buffer> pool, int width, int height) {
+        PooledI420Buffer buffer = pool.acquire(width, height);
+        buffer.refCount.set(1);
+        return buffer;
+    }
+
+    private PooledI420Buffer(FrameBufferPool<PooledI420Buffer> pool, int width, int height) {
+        this.pool = pool;
+        this.width = width;
+        this.height = height;
+        this.strideY = width;
+        this.strideUV = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        int sizeY = strideY * height;
+        int sizeUV = strideUV * chromaHeight;
+
+        ByteBuffer data = ByteBuffer.allocateDirect(sizeY + 2 * sizeUV);
+        data.position(0).limit(sizeY);
+        dataY = data.slice();
+        data.position(sizeY).limit(sizeY + sizeUV);
+        dataU = data.slice();
+        data.position(sizeY + sizeUV).limit(sizeY + 2 * sizeUV);
+        dataV = data.slice();
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public ByteBuffer getDataY() {
+        return dataY;
+    }
+
+    @Override
+    public ByteBuffer getDataU() {
+        return dataU;
+    }
+
+    @Override
+    public ByteBuffer getDataV() {
+        return dataV;
+    }
+
+    @Override
+    public int getStrideY() {
+        return strideY;
+    }
+
+    @Override
+    public int getStrideU() {
+        return strideUV;
+    }
+
+    @Override
+    public int getStrideV() {
+        return strideUV;
+    }
+
+    @Override
+    public VideoFrame.I420Buffer toI420() {
+        retain();
+        return this;
+    }
+
+    @Override
+    public void retain() {
+        refCount.incrementAndGet();
+    }
+
+    @Override
+    public void release() {
+        if (refCount.decrementAndGet() == 0) {
+            pool.recycle(width, height, this);
+        }
+    }
+
+    @Override
+    public VideoFrame.Buffer cropAndScale(int cropX, int cropY, int cropWidth, int cropHeight, int scaleWidth, int scaleHeight) {
+        return JavaI420Buffer.cropAndScaleI420(this, cropX, cropY, cropWidth, cropHeight, scaleWidth, scaleHeight);
+    }
+
+    private static final class PoolFactory implements FrameBufferPool.Factory<PooledI420Buffer> {
+        FrameBufferPool<PooledI420Buffer> pool;
+
+        @Override
+        public PooledI420Buffer create(int width, int height) {
+            return new PooledI420Buffer(pool, width, height);
+        }
+    }
+}
@@ -1,64 +1,208 @@
 package com.callapp.mobile;
 
 import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
 import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.hardware.display.DisplayManager;
 import android.media.projection.MediaProjection;
 import android.media.projection.MediaProjectionManager;
+import android.Manifest;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.DisplayMetrics;
 import android.util.Log;
+import android.view.Display;
 
 import com.facebook.react.bridge.ActivityEventListener;
+import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.BaseActivityEventListener;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
 
+import org.webrtc.PeerConnection;
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
+import org.webrtc.RtpParameters;
+import org.webrtc.RtpSender;
+import org.webrtc.RtpTransceiver;
 import org.webrtc.ScreenCapturerAndroid;
 import org.webrtc.SurfaceTextureHelper;
 import org.webrtc.VideoCapturer;
 import org.webrtc.VideoSource;
 import org.webrtc.VideoTrack;
 import org.webrtc.PeerConnectionFactory;
-import org.webrtc.EglBase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ScreenCaptureModule extends ReactContextBaseJavaModule {
     private static final String TAG = "ScreenCaptureModule";
     private static final int SCREEN_CAPTURE_REQUEST_CODE = 1001;
+    private static final String EVENT_CAPTURE_STATS = "ScreenCaptureStats";
+    private static final String EVENT_CONTENT_MODE = "ScreenContentModeChanged";
+    private static final String EVENT_THUMBNAIL = "ScreenThumbnail";
+    private static final String EVENT_CAPTURE_STOPPED = "ScreenCaptureStopped";
+    private static final String EVENT_BACKPRESSURE = "ScreenCaptureBackpressure";
+    private static final long DISPLAY_CHANGE_DEBOUNCE_MS = 300;
+    private static final long SERVICE_START_TIMEOUT_MS = 2000;
+    // The permission dialog waits for the user; a result that has not come by then never will
+    private static final long REQUEST_TIMEOUT_MS = 120_000;
+    private static final long DISPOSAL_TIMEOUT_MS = 2000;
+    private static final long DEFAULT_WARM_SESSION_TIMEOUT_MS = 60_000;
+    private static final long FIRST_ENCODE_POLL_MS = 20;
+    private static final long FIRST_ENCODE_TIMEOUT_MS = 10_000;
     
     private MediaProjectionManager mediaProjectionManager;
+    // The capture session lives on sessionExecutor: every state transition and every write to
+    // the projection, capturer, source, track and helper happens there, in submission order.
+    // Bridge calls only enqueue work, so they never block on each other or on a teardown.
+    private final ExecutorService sessionExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "ScreenCaptureSession"));
+    private final AtomicReference<CaptureSessionState> sessionState = new AtomicReference<>(CaptureSessionState.IDLE);
+    // Stopped sessions are disposed here, so the session thread stays free for the next one
+    private final ExecutorService disposalExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "ScreenCaptureDisposal"));
+    private volatile long lastTeardownMs;
+    private volatile long maxTeardownMs;
+    // Session executor only; see WarmCaptureSession
+    private WarmCaptureSession warmSession;
+    private volatile long warmSessionTimeoutMs = DEFAULT_WARM_SESSION_TIMEOUT_MS;
+    private volatile boolean destroyed;
+    private final StartupLatencyTracker startupTracker;
+    // The start being timed, until its first encoded frame or stop
+    private volatile StartupLatencyTracker.Timeline startupTimeline;
+    // Cleared by the capture thread on the first frame
+    private volatile StartupLatencyTracker.Timeline firstFrameTimeline;
+    private volatile PeerConnection screenPeerConnection;
     private MediaProjection mediaProjection;
     private VideoCapturer screenCapturer;
     private VideoSource videoSource;
-    private VideoTrack screenVideoTrack;
+    private volatile VideoTrack screenVideoTrack;
     private Promise screenCapturePromise;
-    private PeerConnectionFactory peerConnectionFactory;
-    private EglBase rootEglBase;
+    // Session executor only: a start requested while the previous session was still stopping
+    private ReadableMap pendingRequestOptions;
+    private Promise pendingRequestPromise;
+    private Future<WebRTCFactoryProvider> webRTCFuture;
+    private WebRTCFactoryProvider webRTCProvider;
     private SurfaceTextureHelper surfaceTextureHelper;
+    // Size of the virtual display; the source's adapter scales frames down to the output size
+    private int captureWidth;
+    private int captureHeight;
+    private int outputWidth;
+    private int outputHeight;
+    private int captureFps;
+    private DisplayManager.DisplayListener displayListener;
+    private volatile CaptureProfile captureProfile = CaptureProfile.defaults();
+    private StaticFrameFilter staticFrameFilter;
+    private CaptureRegionCropper regionCropper;
+    private float[] captureRegion;
+    private boolean staticFrameDetection = true;
+    private double staticKeepAliveFps = 1;
+    private float staticMinorChangeRatio = 0.02f;
+    private double staticMinorChangeFps = 5;
+    private volatile FramePacer framePacer;
+    private volatile boolean framePacing = true;
+    private volatile StaticFrameFilter.DirtyRegionListener dirtyRegionListener;
+    private volatile LocalScreenRecorder localRecorder;
+    private FrameDistributor.Registration recorderRegistration;
+    private final FrameDistributor frameDistributor = new FrameDistributor();
+    private final Map<FrameProcessor, FrameDistributor.Registration> frameProcessors = new IdentityHashMap<>();
+    private volatile PooledFrameConverter frameConverter;
+    private ThumbnailProducer thumbnailProducer;
+    private final CaptureMetrics captureMetrics = new CaptureMetrics();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Runnable statsEmitter;
+    private volatile SimulcastLayers simulcastLayers = SimulcastLayers.defaults();
+    private volatile EncoderBackpressureController.Config backpressureConfig = EncoderBackpressureController.Config.defaults();
+    private volatile int backpressureLevel;
+    // Main thread only
+    private EncoderBackpressureController backpressure;
+    private Runnable backpressurePoll;
+    private final Map<String, double[]> lastLayerCounters = new HashMap<>();
+    private long lastPollForwarded;
+    private long lastPollNs = -1;
+    private volatile RtpSender screenSender;
+    private volatile ScreenContentMode contentMode = ScreenContentMode.DETAIL;
+    private volatile boolean autoContentMode = true;
+    private PlaybackAudioCapture playbackAudioCapture;
+    // Runs on the capture thread
+    private final ContentModeSelector contentModeSelector = new ContentModeSelector(ScreenContentMode.DETAIL, mode -> {
+        if (!autoContentMode) {
+            return false;
+        }
+        // RtpSender calls block on the signaling thread; keep them off the capture thread
+        runOnSession(() -> applyContentMode(mode));
+        return true;
+    });
+
+    // Runs on the capture thread for every forwarded frame
+    private final StaticFrameFilter.DirtyRegionListener frameRegionListener = (tracker, timestampNs) -> {
+        StaticFrameFilter.DirtyRegionListener listener = dirtyRegionListener;
+        if (listener != null) {
+            listener.onDirtyRegions(tracker, timestampNs);
+        }
+    };
 
     private final ActivityEventListener activityEventListener = new BaseActivityEventListener() {
         @Override
         public void onActivityResult(Activity activity, int requestCode, int resultCode, Intent data) {
             if (requestCode == SCREEN_CAPTURE_REQUEST_CODE) {
-                if (resultCode == Activity.RESULT_OK && data != null) {
-                    handleScreenCapturePermissionResult(resultCode, data);
-                } else {
-                    if (screenCapturePromise != null) {
-                        screenCapturePromise.reject("PERMISSION_DENIED", "Screen capture permission denied");
-                        screenCapturePromise = null;
-                    }
-                }
+                markStartup(StartupLatencyTracker.Phase.ACTIVITY_RESULT);
+                // Runs after the WebRTC init queued by requestScreenCapturePermission
+                runOnSession(() -> handleScreenCapturePermissionResult(resultCode, data));
             }
         }
     };
 
+    private final ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            // UI_HIDDEN fires whenever the user switches to the app they are sharing; not a reason to drop it
+            if (level >= TRIM_MEMORY_RUNNING_LOW && level != TRIM_MEMORY_UI_HIDDEN) {
+                runOnSession(ScreenCaptureModule.this::releaseWarmSession);
+            }
+        }
+
+        @Override
+        public void onLowMemory() {
+            runOnSession(ScreenCaptureModule.this::releaseWarmSession);
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+    };
+
     public ScreenCaptureModule(ReactApplicationContext reactContext) {
         super(reactContext);
         reactContext.addActivityEventListener(activityEventListener);
+        reactContext.registerComponentCallbacks(memoryCallbacks);
+        startupTracker = new StartupLatencyTracker(reactContext);
         mediaProjectionManager = (MediaProjectionManager) reactContext.getSystemService(reactContext.MEDIA_PROJECTION_SERVICE);
-        
-        // Initialize WebRTC components
-        initializeWebRTC();
+        // WebRTC components are initialized lazily, see initializeWebRTCAsync()
     }
 
     @Override
@@ -66,100 +210,199 @@ public class ScreenCaptureModule extends ReactContextBaseJavaModule {
         return "ScreenCaptureModule";
     }
 
-    private void initializeWebRTC() {
-        try {
-            // Initialize EGL context
-            rootEglBase = EglBase.create();
-            
-            // Initialize PeerConnectionFactory (should ideally be shared with main WebRTC service)
-            PeerConnectionFactory.InitializationOptions initOptions = PeerConnectionFactory.InitializationOptions.builder(getReactApplicationContext())
-                .setEnableInternalTracer(false)
-                .createInitializationOptions();
-            PeerConnectionFactory.initialize(initOptions);
+    /**
+     * Starts WebRTC initialization on the background executor if it is not already running.
+     * Nothing here runs during bridge startup; the first capture request or prewarm() pays it.
+     */
+    private synchronized Future<WebRTCFactoryProvider> initializeWebRTCAsync() {
+        if (webRTCFuture == null) {
+            webRTCFuture = sessionExecutor.submit(() -> {
+                // Factory, EGL context and codec factories are shared with the call stack
+                WebRTCFactoryProvider provider = WebRTCFactoryProvider.acquire(getReactApplicationContext());
+                Log.d(TAG, "WebRTC components initialized successfully");
+                return provider;
+            });
+        }
+        return webRTCFuture;
+    }
 
-            peerConnectionFactory = PeerConnectionFactory.builder()
-                .setVideoEncoderFactory(new org.webrtc.DefaultVideoEncoderFactory(rootEglBase.getEglBaseContext(), true, true))
-                .setVideoDecoderFactory(new org.webrtc.DefaultVideoDecoderFactory(rootEglBase.getEglBaseContext()))
-                .createPeerConnectionFactory();
+    // Only call from sessionExecutor, where the init task has already finished
+    private WebRTCFactoryProvider awaitWebRTC() throws InterruptedException, ExecutionException {
+        if (webRTCProvider == null) {
+            webRTCProvider = initializeWebRTCAsync().get();
+        }
+        return webRTCProvider;
+    }
 
-            Log.d(TAG, "WebRTC components initialized successfully");
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to initialize WebRTC components", e);
+    @ReactMethod
+    public void prewarm(Promise promise) {
+        initializeWebRTCAsync();
+        runOnSession(() -> {
+            try {
+                awaitWebRTC();
+                promise.resolve(null);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to initialize WebRTC components", e);
+                promise.reject("INIT_FAILED", "Failed to initialize WebRTC: " + e.getMessage());
+            }
+        });
+    }
+
+    /** Current session state ("idle", "requesting", "starting", "capturing", "stopping"). */
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public String getCaptureState() {
+        return sessionState.get().jsName;
+    }
+
+    // Drops the task if the module is already being torn down
+    private void runOnSession(Runnable task) {
+        try {
+            sessionExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Capture session already shut down, dropping task");
         }
     }
 
     @ReactMethod
-    public void requestScreenCapturePermission(Promise promise) {
+    public void requestScreenCapturePermission(ReadableMap options, Promise promise) {
+        // Claiming the session here rejects a second start without a round trip to the executor
+        if (!sessionState.compareAndSet(CaptureSessionState.IDLE, CaptureSessionState.REQUESTING)) {
+            if (sessionState.get() == CaptureSessionState.STOPPING) {
+                // stopScreenCapture() resolves before the old session is disposed
+                runOnSession(() -> requestAfterStop(options, promise));
+                return;
+            }
+            promise.reject("INVALID_STATE", "Cannot start screen capture while " + sessionState.get().jsName);
+            return;
+        }
+        startupTimeline = startupTracker.begin();
         try {
-            screenCapturePromise = promise;
+            captureProfile = CaptureProfile.fromReadableMap(options, CaptureProfile.defaults());
+            // Queued ahead of the activity result, which is handled on the executor too
+            sessionExecutor.execute(() -> screenCapturePromise = promise);
+            // Overlap WebRTC init with the system permission dialog
+            initializeWebRTCAsync();
             Activity currentActivity = getCurrentActivity();
             
             if (currentActivity == null) {
-                promise.reject("NO_ACTIVITY", "No current activity available");
+                runOnSession(() -> rejectStart("NO_ACTIVITY", "No current activity available"));
                 return;
             }
 
             Intent captureIntent = mediaProjectionManager.createScreenCaptureIntent();
             currentActivity.startActivityForResult(captureIntent, SCREEN_CAPTURE_REQUEST_CODE);
+            markStartup(StartupLatencyTracker.Phase.INTENT_LAUNCHED);
+            // The activity can go away without ever delivering a result
+            mainHandler.postDelayed(() -> runOnSession(() -> expireRequest(promise)), REQUEST_TIMEOUT_MS);
             
         } catch (Exception e) {
             Log.e(TAG, "Error requesting screen capture permission", e);
+            sessionState.set(CaptureSessionState.IDLE);
             promise.reject("REQUEST_FAILED", "Failed to request screen capture permission: " + e.getMessage());
         }
     }
 
+    // Session executor only: holds the request until onCaptureSessionDisposed, unless the stop
+    // has finished in the meantime
+    private void requestAfterStop(ReadableMap options, Promise promise) {
+        if (sessionState.get() != CaptureSessionState.STOPPING) {
+            requestScreenCapturePermission(options, promise);
+            return;
+        }
+        if (pendingRequestPromise != null) {
+            promise.reject("INVALID_STATE", "Another screen capture start is already waiting for the stop");
+            return;
+        }
+        pendingRequestOptions = options;
+        pendingRequestPromise = promise;
+    }
+
+    // Session executor only
+    private void rejectStart(String code, String message) {
+        // Failed starts say nothing about startup latency; they are not recorded
+        startupTimeline = null;
+        firstFrameTimeline = null;
+        sessionState.set(CaptureSessionState.IDLE);
+        if (screenCapturePromise != null) {
+            screenCapturePromise.reject(code, message);
+            screenCapturePromise = null;
+        }
+    }
+
+    // Session executor only. The promise identifies the request, so a later request is not hit.
+    private void expireRequest(Promise promise) {
+        if (screenCapturePromise == promise && sessionState.get() == CaptureSessionState.REQUESTING) {
+            Log.w(TAG, "No screen capture permission result after " + REQUEST_TIMEOUT_MS + "ms");
+            rejectStart("TIMEOUT", "Timed out waiting for the screen capture permission result");
+        }
+    }
+
+    // A result that comes in after a cancel or timeout finds the session no longer REQUESTING
     private void handleScreenCapturePermissionResult(int resultCode, Intent data) {
+        if (!sessionState.compareAndSet(CaptureSessionState.REQUESTING, CaptureSessionState.STARTING)) {
+            Log.w(TAG, "Ignoring screen capture permission result while " + sessionState.get().jsName);
+            return;
+        }
+        if (resultCode != Activity.RESULT_OK || data == null) {
+            rejectStart("PERMISSION_DENIED", "Screen capture permission denied");
+            return;
+        }
         try {
-            mediaProjection = mediaProjectionManager.getMediaProjection(resultCode, data);
-            
+            // The mediaProjection foreground service has to be up before the projection is created
+            ScreenCaptureService.start(getReactApplicationContext());
+            if (!ScreenCaptureService.awaitForeground(SERVICE_START_TIMEOUT_MS)) {
+                Log.w(TAG, "Screen capture service did not reach the foreground in time");
+            }
+            markStartup(StartupLatencyTracker.Phase.SERVICE_FOREGROUND);
+            // ScreenCapturerAndroid creates the projection from the result intent itself; a
+            // second getMediaProjection() with the same intent is rejected on Android 14
+            startScreenCapture(resultCode, data);
+
             if (mediaProjection != null) {
-                startScreenCapture(resultCode, data);
+                sessionState.set(CaptureSessionState.CAPTURING);
+                mainHandler.post(this::startBackpressureMonitor);
                 if (screenCapturePromise != null) {
                     screenCapturePromise.resolve("Screen capture started successfully");
                     screenCapturePromise = null;
                 }
             } else {
-                if (screenCapturePromise != null) {
-                    screenCapturePromise.reject("PROJECTION_FAILED", "Failed to create media projection");
-                    screenCapturePromise = null;
-                }
+                stopCaptureSession();
+                ScreenCaptureService.stop(getReactApplicationContext());
+                rejectStart("PROJECTION_FAILED", "Failed to create media projection");
             }
         } catch (Exception e) {
             Log.e(TAG, "Error handling screen capture permission result", e);
-            if (screenCapturePromise != null) {
-                screenCapturePromise.reject("HANDLING_FAILED", "Failed to handle permission result: " + e.getMessage());
-                screenCapturePromise = null;
+            try {
+                stopCaptureSession();
+            } catch (Exception cleanupError) {
+                Log.w(TAG, "Error cleaning up failed screen capture", cleanupError);
             }
+            ScreenCaptureService.stop(getReactApplicationContext());
+            rejectStart("HANDLING_FAILED", "Failed to handle permission result: " + e.getMessage());
         }
     }
 
-    private void startScreenCapture(int resultCode, Intent data) {
+    private void startScreenCapture(int resultCode, Intent data) throws Exception {
         try {
-            if (peerConnectionFactory == null) {
-                throw new RuntimeException("PeerConnectionFactory not initialized");
-            }
-
-            // Create video source first
-            videoSource = peerConnectionFactory.createVideoSource(false);
-            surfaceTextureHelper = SurfaceTextureHelper.create("ScreenCaptureThread", rootEglBase.getEglBaseContext());
-
             // Create screen capturer, passing the capturer observer from the video source
-            screenCapturer = new ScreenCapturerAndroid(
+            VideoCapturer capturer = new ScreenCapturerAndroid(
                 data,
                 new MediaProjection.Callback() {
                     @Override
                     public void onStop() {
                         Log.d(TAG, "MediaProjection stopped");
+                        // Stopped by the system or the user (e.g. from the cast tile)
+                        runOnSession(ScreenCaptureModule.this::onProjectionStopped);
                     }
                 }
             );
-            
-            screenCapturer.initialize(surfaceTextureHelper, getReactApplicationContext(), videoSource.getCapturerObserver());
-            screenCapturer.startCapture(1920, 1080, 30);
+            int[] size = captureProfile.resolve(getDisplayMetrics());
+            startCaptureSession(capturer, size[0], size[1], captureProfile.fps);
+            mediaProjection = ((ScreenCapturerAndroid) capturer).getMediaProjection();
+            markStartup(StartupLatencyTracker.Phase.PROJECTION_CREATED);
+            mainHandler.post(this::registerDisplayListener);
 
-            screenVideoTrack = peerConnectionFactory.createVideoTrack("ScreenVideoTrack", videoSource);
-            
-            Log.d(TAG, "Screen capture started successfully");
+            Log.d(TAG, "Screen capture started at " + size[0] + "x" + size[1] + "@" + captureProfile.fps + " using " + captureProfile);
             
         } catch (Exception e) {
             Log.e(TAG, "Error starting screen capture", e);
@@ -167,44 +410,1162 @@ public class ScreenCaptureModule extends ReactContextBaseJavaModule {
         }
     }
 
+    // Builds the source, processing chain and track around any capturer, reusing the warm
+    // session from the previous share if there is one
+    private void startCaptureSession(VideoCapturer capturer, int width, int height, int fps) throws Exception {
+        PeerConnectionFactory peerConnectionFactory = awaitWebRTC().getPeerConnectionFactory();
+
+        WarmCaptureSession warm = warmSession;
+        warmSession = null;
+        StartupLatencyTracker.Timeline timeline = startupTimeline;
+        if (timeline != null) {
+            timeline.setWarm(warm != null);
+            firstFrameTimeline = timeline;
+        }
+        if (warm != null) {
+            videoSource = warm.source;
+            videoSource.setIsScreencast(contentMode.screencast);
+            surfaceTextureHelper = warm.surfaceTextureHelper;
+            screenVideoTrack = warm.track;
+            frameConverter = warm.frameConverter;
+            // The track never left its sender, so backpressure, content mode and first-frame
+            // tracking pick up where the previous share stopped
+            screenSender = warm.sender;
+            screenPeerConnection = warm.peerConnection;
+            if (screenSender != null) {
+                try {
+                    contentMode.applyTo(screenSender, simulcastLayers, captureProfile.fps);
+                } catch (IllegalStateException e) {
+                    // The peer connection was closed while the session was parked
+                    Log.w(TAG, "Warm sender is no longer usable, capturing without it: " + e.getMessage());
+                    screenSender = null;
+                    screenPeerConnection = null;
+                }
+            }
+            Log.d(TAG, "Reusing warm capture session");
+        } else {
+            // Create video source first
+            videoSource = peerConnectionFactory.createVideoSource(contentMode.screencast);
+            surfaceTextureHelper = webRTCProvider.createSurfaceTextureHelper("ScreenCaptureThread");
+            // Frames are produced and filtered on this thread; keep it ahead of other app work
+            surfaceTextureHelper.getHandler().post(() -> Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_DISPLAY));
+            frameConverter = new PooledFrameConverter();
+        }
+        screenCapturer = capturer;
+
+        // Drop unchanged frames before they reach the encoder
+        captureMetrics.reset();
+        backpressureLevel = 0;
+        contentModeSelector.reset(contentMode);
+        CaptureChain chain = new CaptureChain(videoSource.getCapturerObserver(), frameDistributor, captureMetrics,
+                frameConverter, contentModeSelector, getDefaultDisplay().getRefreshRate(), captureRegion,
+                this::onFirstFrameForwarded);
+        staticFrameFilter = chain.getStaticFrameFilter();
+        applyStaticFrameSettings();
+        FramePacer pacer = chain.getPacer();
+        pacer.setTargetFps(fps);
+        pacer.setEnabled(framePacing);
+        framePacer = pacer;
+        regionCropper = chain.getCropper();
+
+        screenCapturer.initialize(surfaceTextureHelper, getReactApplicationContext(), chain.getInput());
+        markStartup(StartupLatencyTracker.Phase.CAPTURER_INITIALIZED);
+        screenCapturer.startCapture(width, height, fps);
+        captureWidth = width;
+        captureHeight = height;
+        setOutputFormat(width, height, fps);
+
+        if (screenVideoTrack == null) {
+            screenVideoTrack = peerConnectionFactory.createVideoTrack("ScreenVideoTrack", videoSource);
+        } else {
+            screenVideoTrack.setEnabled(true);
+        }
+    }
+
+    // Capture thread
+    private void onFirstFrameForwarded() {
+        StartupLatencyTracker.Timeline timeline = firstFrameTimeline;
+        if (timeline != null) {
+            firstFrameTimeline = null;
+            timeline.mark(StartupLatencyTracker.Phase.FIRST_FRAME_CAPTURED);
+            long deadlineMs = SystemClock.uptimeMillis() + FIRST_ENCODE_TIMEOUT_MS;
+            mainHandler.post(() -> pollFirstEncodedFrame(timeline, deadlineMs));
+        }
+    }
+
+    private void markStartup(StartupLatencyTracker.Phase phase) {
+        StartupLatencyTracker.Timeline timeline = startupTimeline;
+        if (timeline != null) {
+            timeline.mark(phase);
+        }
+    }
+
+    private void finishStartup(StartupLatencyTracker.Timeline timeline) {
+        if (timeline == null) {
+            return;
+        }
+        if (startupTimeline == timeline) {
+            startupTimeline = null;
+        }
+        startupTracker.record(timeline);
+    }
+
+    // Main thread. Sender stats only count encoded frames once the track has been added to a
+    // peer connection, so this also waits for addScreenTrack(); accurate to about one poll.
+    private void pollFirstEncodedFrame(StartupLatencyTracker.Timeline timeline, long deadlineMs) {
+        if (startupTimeline != timeline) {
+            return;
+        }
+        if (SystemClock.uptimeMillis() > deadlineMs) {
+            finishStartup(timeline);
+            return;
+        }
+        PeerConnection peerConnection = screenPeerConnection;
+        RtpSender sender = screenSender;
+        if (peerConnection == null || sender == null) {
+            mainHandler.postDelayed(() -> pollFirstEncodedFrame(timeline, deadlineMs), FIRST_ENCODE_POLL_MS);
+            return;
+        }
+        try {
+            peerConnection.getStats(sender, report -> {
+                if (getFramesEncoded(report) > 0) {
+                    timeline.mark(StartupLatencyTracker.Phase.FIRST_FRAME_ENCODED);
+                    finishStartup(timeline);
+                } else {
+                    mainHandler.postDelayed(() -> pollFirstEncodedFrame(timeline, deadlineMs), FIRST_ENCODE_POLL_MS);
+                }
+            });
+        } catch (Exception e) {
+            Log.w(TAG, "Could not read sender stats", e);
+            finishStartup(timeline);
+        }
+    }
+
+    private static long getFramesEncoded(RTCStatsReport report) {
+        long framesEncoded = 0;
+        for (RTCStats stats : report.getStatsMap().values()) {
+            if ("outbound-rtp".equals(stats.getType())) {
+                Object value = stats.getMembers().get("framesEncoded");
+                if (value instanceof Number) {
+                    framesEncoded += ((Number) value).longValue();
+                }
+            }
+        }
+        return framesEncoded;
+    }
+
+    /**
+     * Startup latency history of this device: every recorded share start with its phases in ms
+     * since requestScreenCapturePermission, plus count/p50/p95 per phase for this app version.
+     */
     @ReactMethod
-    public void stopScreenCapture(Promise promise) {
+    public void getStartupLatency(Promise promise) {
+        try {
+            WritableArray samples = Arguments.createArray();
+            for (StartupLatencyTracker.Sample sample : startupTracker.getSamples()) {
+                WritableMap item = Arguments.createMap();
+                item.putString("version", sample.version);
+                item.putDouble("time", sample.wallTimeMs);
+                item.putBoolean("warm", sample.warm);
+                WritableMap phases = Arguments.createMap();
+                for (StartupLatencyTracker.Phase phase : StartupLatencyTracker.Phase.values()) {
+                    double value = sample.phaseMs[phase.ordinal()];
+                    if (value >= 0) {
+                        phases.putDouble(phase.jsName, value);
+                    }
+                }
+                item.putMap("phases", phases);
+                samples.pushMap(item);
+            }
+            WritableMap summary = Arguments.createMap();
+            for (StartupLatencyTracker.Phase phase : StartupLatencyTracker.Phase.values()) {
+                StartupLatencyTracker.Summary phaseSummary = startupTracker.summarize(phase, BuildConfig.VERSION_NAME);
+                WritableMap item = Arguments.createMap();
+                item.putInt("count", phaseSummary.count);
+                item.putDouble("p50Ms", phaseSummary.p50Ms);
+                item.putDouble("p95Ms", phaseSummary.p95Ms);
+                summary.putMap(phase.jsName, item);
+            }
+            WritableMap result = Arguments.createMap();
+            result.putString("version", BuildConfig.VERSION_NAME);
+            result.putArray("samples", samples);
+            result.putMap("summary", summary);
+            promise.resolve(result);
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading startup latency", e);
+            promise.reject("STATS_FAILED", "Failed to read startup latency: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hardware encoders measured by CodecCapabilityProbe, with frames per second at 720p and
+     * 1080p, and the codecs they cover fastest first; null until the probe has run on this OS
+     * build. Calls keep react-native-webrtc's codecs; use this to set codec preferences.
+     */
+    @ReactMethod
+    public void getCodecCapabilities(Promise promise) {
         try {
-            if (screenCapturer != null) {
-                screenCapturer.stopCapture();
-                screenCapturer.dispose();
-                screenCapturer = null;
+            CodecCapabilityProbe.Results results = CodecCapabilityProbe.getResults(getReactApplicationContext());
+            if (results == null) {
+                promise.resolve(null);
+                return;
             }
+            WritableArray encoders = Arguments.createArray();
+            for (CodecCapabilityProbe.EncoderResult encoder : results.encoders) {
+                WritableMap item = Arguments.createMap();
+                item.putString("name", encoder.name);
+                item.putString("codec", encoder.codec);
+                item.putBoolean("highProfile", encoder.highProfile);
+                WritableArray fps = Arguments.createArray();
+                for (double value : encoder.fps) {
+                    fps.pushDouble(value);
+                }
+                item.putArray("fps", fps);
+                encoders.pushMap(item);
+            }
+            WritableArray codecs = Arguments.createArray();
+            for (String codec : results.getCodecsByThroughput()) {
+                codecs.pushString(codec);
+            }
+            WritableMap result = Arguments.createMap();
+            result.putArray("encoders", encoders);
+            result.putArray("codecsByThroughput", codecs);
+            promise.resolve(result);
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading codec capabilities", e);
+            promise.reject("STATS_FAILED", "Failed to read codec capabilities: " + e.getMessage());
+        }
+    }
 
-            if (videoSource != null) {
-                videoSource.dispose();
-                videoSource = null;
+    void addFrameProcessor(FrameProcessor processor) {
+        addFrameProcessor(processor, 0);
+    }
+
+    // Processors are called on the capture thread at up to maxFps (0 for every frame); see FrameProcessor
+    synchronized void addFrameProcessor(FrameProcessor processor, double maxFps) {
+        FrameDistributor.Registration registration = frameDistributor.addSink(frame -> {
+            PooledFrameConverter converter = frameConverter;
+            if (converter != null) {
+                processor.onFrame(frame, converter);
             }
+        }, maxFps, null, false);
+        frameProcessors.put(processor, registration);
+    }
 
-            if (screenVideoTrack != null) {
-                screenVideoTrack.dispose();
-                screenVideoTrack = null;
+    synchronized void removeFrameProcessor(FrameProcessor processor) {
+        FrameDistributor.Registration registration = frameProcessors.remove(processor);
+        if (registration != null) {
+            frameDistributor.removeSink(registration);
+        }
+    }
+
+    /**
+     * Emits ScreenThumbnail events with the path of a small JPEG of the shared screen, about
+     * width px wide at fps (default 160 px at 1 fps). Files live in the app cache directory.
+     */
+    @ReactMethod
+    public void startThumbnails(ReadableMap options, Promise promise) {
+        runOnSession(() -> startThumbnailsOnSession(options, promise));
+    }
+
+    private void startThumbnailsOnSession(ReadableMap options, Promise promise) {
+        try {
+            if (thumbnailProducer != null) {
+                promise.reject("ALREADY_RUNNING", "Thumbnails are already running");
+                return;
             }
+            int width = options != null && options.hasKey("width") ? options.getInt("width") : 160;
+            double fps = options != null && options.hasKey("fps") ? options.getDouble("fps") : 1;
+            int quality = options != null && options.hasKey("quality") ? options.getInt("quality") : 70;
+            int maxFiles = options != null && options.hasKey("maxFiles") ? options.getInt("maxFiles") : 5;
+
+            File directory = new File(getReactApplicationContext().getCacheDir(), "screen_thumbnails");
+            ThumbnailProducer producer = new ThumbnailProducer(directory, width, quality, maxFiles, (path, thumbWidth, thumbHeight, timestampNs) -> {
+                WritableMap event = Arguments.createMap();
+                event.putString("path", path);
+                event.putInt("width", thumbWidth);
+                event.putInt("height", thumbHeight);
+                event.putDouble("timestampNs", timestampNs);
+                emitEvent(EVENT_THUMBNAIL, event);
+            });
+            producer.start();
+            addFrameProcessor(producer, fps);
+            thumbnailProducer = producer;
+            promise.resolve(directory.getAbsolutePath());
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting thumbnails", e);
+            promise.reject("THUMBNAILS_FAILED", "Failed to start thumbnails: " + e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void stopThumbnails(Promise promise) {
+        runOnSession(() -> {
+            stopThumbnailsSilently();
+            promise.resolve(null);
+        });
+    }
+
+    private void stopThumbnailsSilently() {
+        ThumbnailProducer producer = thumbnailProducer;
+        if (producer != null) {
+            thumbnailProducer = null;
+            removeFrameProcessor(producer);
+            producer.release();
+        }
+    }
+
+    @ReactMethod
+    public void startLocalRecording(String path, ReadableMap options, Promise promise) {
+        runOnSession(() -> startLocalRecordingOnSession(path, options, promise));
+    }
 
-            if (surfaceTextureHelper != null) {
-                surfaceTextureHelper.dispose();
-                surfaceTextureHelper = null;
+    private void startLocalRecordingOnSession(String path, ReadableMap options, Promise promise) {
+        try {
+            if (sessionState.get() != CaptureSessionState.CAPTURING || webRTCProvider == null) {
+                promise.reject("NOT_CAPTURING", "Screen capture is not running");
+                return;
+            }
+            if (localRecorder != null) {
+                promise.reject("ALREADY_RECORDING", "Local recording is already running");
+                return;
             }
 
-            if (mediaProjection != null) {
-                mediaProjection.stop();
-                mediaProjection = null;
+            int bitrate = options != null && options.hasKey("bitrate") ? options.getInt("bitrate") : 4_000_000;
+            int fps = options != null && options.hasKey("fps") ? options.getInt("fps") : captureProfile.fps;
+            int keyFrameInterval = options != null && options.hasKey("keyFrameInterval") ? options.getInt("keyFrameInterval") : 2;
+            int segmentDuration = options != null && options.hasKey("segmentDurationSec") ? options.getInt("segmentDurationSec") : 60;
+
+            LocalScreenRecorder recorder = new LocalScreenRecorder(path, webRTCProvider.getEglContext(), bitrate, fps,
+                    keyFrameInterval, segmentDuration);
+            recorder.start();
+            recorderRegistration = frameDistributor.addSink(recorder, fps, recorder.getExecutor(), false);
+            localRecorder = recorder;
+            promise.resolve(path);
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting local recording", e);
+            promise.reject("RECORDING_FAILED", "Failed to start local recording: " + e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void stopLocalRecording(Promise promise) {
+        // Queued behind a pending start, so a quick start/stop pair finds the recorder
+        runOnSession(() -> stopLocalRecordingOnSession(promise));
+    }
+
+    private void stopLocalRecordingOnSession(Promise promise) {
+        LocalScreenRecorder recorder = localRecorder;
+        if (recorder == null) {
+            promise.reject("NOT_RECORDING", "Local recording is not running");
+            return;
+        }
+        localRecorder = null;
+        long framesDropped = removeRecorderRegistration();
+        recorder.stop((framesRecorded, error) -> {
+            if (error != null) {
+                promise.reject("RECORDING_FAILED", "Failed to finish local recording: " + error.getMessage());
+                return;
+            }
+            WritableMap result = Arguments.createMap();
+            WritableArray segments = Arguments.createArray();
+            for (String segmentPath : recorder.getSegmentPaths()) {
+                segments.pushString(segmentPath);
             }
+            result.putString("path", recorder.getPath());
+            result.putArray("segments", segments);
+            result.putDouble("framesRecorded", framesRecorded);
+            result.putDouble("framesDropped", framesDropped);
+            promise.resolve(result);
+        });
+    }
 
-            Log.d(TAG, "Screen capture stopped successfully");
-            promise.resolve("Screen capture stopped");
-            
+    /**
+     * Captures audio played by other apps through the current projection, optionally mixed
+     * with the microphone, and delivers it to {@code sink} as 10 ms PCM frames. For native
+     * consumers only: WebRTC's Java audio device module has no way to feed in PCM, so there is
+     * nothing on the JS side the audio could go to. The returned future fails with the reason
+     * if the capture could not be started.
+     */
+    Future<?> startPlaybackAudioCapture(PlaybackAudioCapture.AudioFrameSink sink, int sampleRate, int channels,
+                                        boolean mixMicrophone) {
+        return sessionExecutor.submit(() -> {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+                throw new UnsupportedOperationException("Playback audio capture requires Android 10");
+            }
+            if (mediaProjection == null) {
+                throw new IllegalStateException("Screen capture is not running");
+            }
+            if (playbackAudioCapture != null) {
+                throw new IllegalStateException("Playback audio capture is already running");
+            }
+            if (getReactApplicationContext().checkSelfPermission(Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
+                throw new SecurityException("RECORD_AUDIO permission is required");
+            }
+            PlaybackAudioCapture capture = new PlaybackAudioCapture(mediaProjection, sampleRate, channels, mixMicrophone);
+            capture.setSink(sink);
+            capture.start();
+            playbackAudioCapture = capture;
+            return null;
+        });
+    }
+
+    /** Stops the capture started with startPlaybackAudioCapture; a no-op if none is running. */
+    Future<?> stopPlaybackAudioCapture() {
+        return sessionExecutor.submit(() -> {
+            PlaybackAudioCapture capture = playbackAudioCapture;
+            if (capture == null) {
+                return;
+            }
+            playbackAudioCapture = null;
+            capture.stop();
+            Log.d(TAG, "Playback audio capture stopped: " + capture.getFramesDelivered() + " frames delivered, "
+                + capture.getSamplesOverrun() + " samples overrun, " + capture.getSamplesSkipped() + " skipped");
+        });
+    }
+
+    private void stopLocalRecordingSilently() {
+        LocalScreenRecorder recorder = localRecorder;
+        if (recorder != null) {
+            localRecorder = null;
+            removeRecorderRegistration();
+            recorder.stop((framesRecorded, error) -> { });
+        }
+    }
+
+    // Returns the frames dropped for the recorder because it was still busy
+    private long removeRecorderRegistration() {
+        FrameDistributor.Registration registration = recorderRegistration;
+        recorderRegistration = null;
+        if (registration == null) {
+            return 0;
+        }
+        frameDistributor.removeSink(registration);
+        return registration.getDropped();
+    }
+
+    @ReactMethod
+    public void getCaptureStats(Promise promise) {
+        WritableMap stats = toWritableMap(captureMetrics.snapshot());
+        // How long stopScreenCapture would have blocked the bridge before teardown moved off it
+        stats.putDouble("lastTeardownMs", lastTeardownMs);
+        stats.putDouble("maxTeardownMs", maxTeardownMs);
+        FramePacer pacer = framePacer;
+        if (pacer != null) {
+            stats.putBoolean("pacingEnabled", framePacing);
+            stats.putDouble("pacerInputJitterMs", pacer.getInputJitterMs());
+            stats.putDouble("pacerOutputJitterMs", pacer.getOutputJitterMs());
+            stats.putDouble("pacerFramesForwarded", pacer.getFramesForwarded());
+            stats.putDouble("pacerFramesDropped", pacer.getFramesDropped());
+        }
+        stats.putInt("backpressureLevel", backpressureLevel);
+        promise.resolve(stats);
+    }
+
+    /** Emits ScreenCaptureStats events (and logs them) every intervalMs while enabled. */
+    @ReactMethod
+    public void setCaptureStatsEvents(boolean enabled, int intervalMs) {
+        mainHandler.post(() -> {
+            if (statsEmitter != null) {
+                mainHandler.removeCallbacks(statsEmitter);
+                statsEmitter = null;
+            }
+            if (!enabled) {
+                return;
+            }
+            long periodMs = Math.max(250, intervalMs);
+            statsEmitter = new Runnable() {
+                @Override
+                public void run() {
+                    CaptureMetrics.Snapshot snapshot = captureMetrics.snapshot();
+                    Log.d(TAG, "Capture stats: " + snapshot);
+                    emitEvent(EVENT_CAPTURE_STATS, toWritableMap(snapshot));
+                    mainHandler.postDelayed(this, periodMs);
+                }
+            };
+            mainHandler.postDelayed(statsEmitter, periodMs);
+        });
+    }
+
+    private static WritableMap toWritableMap(CaptureMetrics.Snapshot snapshot) {
+        WritableMap stats = Arguments.createMap();
+        stats.putDouble("framesCaptured", snapshot.framesCaptured);
+        stats.putDouble("framesForwarded", snapshot.framesForwarded);
+        stats.putDouble("framesDropped", snapshot.framesDropped);
+        stats.putInt("width", snapshot.width);
+        stats.putInt("height", snapshot.height);
+        stats.putDouble("captureFps", snapshot.captureFps);
+        stats.putDouble("latencyAvgMs", snapshot.latencyAvgMs);
+        stats.putDouble("latencyP50Ms", snapshot.latencyP50Ms);
+        stats.putDouble("latencyP95Ms", snapshot.latencyP95Ms);
+        stats.putDouble("latencyMaxMs", snapshot.latencyMaxMs);
+        WritableArray bounds = Arguments.createArray();
+        for (int bound : CaptureMetrics.INTERVAL_BUCKETS_MS) {
+            bounds.pushInt(bound);
+        }
+        WritableArray histogram = Arguments.createArray();
+        for (long count : snapshot.intervalHistogram) {
+            histogram.pushDouble(count);
+        }
+        stats.putArray("intervalBucketsMs", bounds);
+        stats.putArray("intervalHistogram", histogram);
+        return stats;
+    }
+
+    @ReactMethod
+    public void updateCaptureFormat(ReadableMap options, Promise promise) {
+        runOnSession(() -> updateCaptureFormatOnSession(options, promise));
+    }
+
+    private void updateCaptureFormatOnSession(ReadableMap options, Promise promise) {
+        try {
+            if (sessionState.get() != CaptureSessionState.CAPTURING) {
+                promise.reject("NOT_CAPTURING", "Screen capture is not running");
+                return;
+            }
+
+            // Reconfigure the live capturer; the MediaProjection stays up. An explicit format
+            // starts over from the top of the backpressure ladder.
+            captureProfile = CaptureProfile.fromReadableMap(options, captureProfile);
+            backpressureLevel = 0;
+            mainHandler.post(() -> {
+                if (backpressure != null) {
+                    backpressure.reset();
+                }
+            });
+            int[] format = resolveCaptureFormat();
+            applyCaptureFormat(format);
+            RtpSender sender = screenSender;
+            if (sender != null) {
+                // A single encoding's frame rate cap follows the profile
+                contentMode.applyTo(sender, simulcastLayers, captureProfile.fps);
+            }
+
+            WritableMap result = Arguments.createMap();
+            result.putInt("width", format[0]);
+            result.putInt("height", format[1]);
+            result.putInt("fps", format[2]);
+            promise.resolve(result);
+        } catch (Exception e) {
+            Log.e(TAG, "Error updating capture format", e);
+            promise.reject("UPDATE_FAILED", "Failed to update capture format: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Shares only the given rectangle, in real display pixels of the current orientation.
+     * Cropping happens before static frame detection and encoding, so encode cost and bitrate
+     * follow the region size. Can be changed while capturing.
+     */
+    @ReactMethod
+    public void setCaptureRegion(double x, double y, double width, double height, Promise promise) {
+        try {
+            DisplayMetrics metrics = getDisplayMetrics();
+            float left = (float) Math.max(0, Math.min(1, x / metrics.widthPixels));
+            float top = (float) Math.max(0, Math.min(1, y / metrics.heightPixels));
+            float regionWidth = (float) Math.max(0, Math.min(1 - left, width / metrics.widthPixels));
+            float regionHeight = (float) Math.max(0, Math.min(1 - top, height / metrics.heightPixels));
+            if (regionWidth <= 0 || regionHeight <= 0) {
+                promise.reject("INVALID_REGION", "Capture region is empty or off screen");
+                return;
+            }
+            float[] region = { left, top, regionWidth, regionHeight };
+            runOnSession(() -> {
+                setCaptureRegionInternal(region);
+                promise.resolve(null);
+            });
+        } catch (Exception e) {
+            Log.e(TAG, "Error setting capture region", e);
+            promise.reject("UPDATE_FAILED", "Failed to set capture region: " + e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void clearCaptureRegion(Promise promise) {
+        runOnSession(() -> {
+            setCaptureRegionInternal(null);
+            promise.resolve(null);
+        });
+    }
+
+    // Session executor only
+    private void setCaptureRegionInternal(float[] region) {
+        captureRegion = region;
+        CaptureRegionCropper cropper = regionCropper;
+        if (cropper != null) {
+            cropper.setRegion(region);
+        }
+    }
+
+    /**
+     * Turns frame pacing (see FramePacer) on or off; on by default. Without it frames reach the
+     * encoder with their composition timestamps, bursts included.
+     */
+    @ReactMethod
+    public void setFramePacing(boolean enabled, Promise promise) {
+        framePacing = enabled;
+        FramePacer pacer = framePacer;
+        if (pacer != null) {
+            pacer.setEnabled(enabled);
+        }
+        promise.resolve(null);
+    }
+
+    @ReactMethod
+    public void setStaticFrameDetection(ReadableMap options, Promise promise) {
+        runOnSession(() -> setStaticFrameDetectionOnSession(options, promise));
+    }
+
+    private void setStaticFrameDetectionOnSession(ReadableMap options, Promise promise) {
+        try {
+            if (options.hasKey("enabled")) {
+                staticFrameDetection = options.getBoolean("enabled");
+            }
+            if (options.hasKey("keepAliveFps")) {
+                staticKeepAliveFps = options.getDouble("keepAliveFps");
+            }
+            if (options.hasKey("minorChangeRatio")) {
+                staticMinorChangeRatio = (float) options.getDouble("minorChangeRatio");
+            }
+            if (options.hasKey("minorChangeFps")) {
+                staticMinorChangeFps = options.getDouble("minorChangeFps");
+            }
+            applyStaticFrameSettings();
+            promise.resolve(null);
+        } catch (Exception e) {
+            Log.e(TAG, "Error updating static frame detection", e);
+            promise.reject("UPDATE_FAILED", "Failed to update static frame detection: " + e.getMessage());
+        }
+    }
+
+    private void applyStaticFrameSettings() {
+        if (staticFrameFilter != null) {
+            staticFrameFilter.setEnabled(staticFrameDetection);
+            staticFrameFilter.setKeepAliveFps(staticKeepAliveFps);
+            staticFrameFilter.setMinorChange(staticMinorChangeRatio, staticMinorChangeFps);
+            staticFrameFilter.setDirtyRegionListener(frameRegionListener);
+        }
+    }
+
+    @ReactMethod
+    public void getDirtyRegionStats(Promise promise) {
+        runOnSession(() -> getDirtyRegionStatsOnSession(promise));
+    }
+
+    private void getDirtyRegionStatsOnSession(Promise promise) {
+        StaticFrameFilter filter = staticFrameFilter;
+        if (filter == null) {
+            promise.reject("NOT_CAPTURING", "Screen capture is not running");
+            return;
+        }
+        DirtyRegionTracker tracker = filter.getDirtyRegionTracker();
+        WritableMap stats = Arguments.createMap();
+        stats.putInt("columns", tracker.columns);
+        stats.putInt("rows", tracker.rows);
+        stats.putDouble("framesTracked", tracker.getFramesTracked());
+        stats.putDouble("lastDirtyRatio", tracker.getLastDirtyRatio());
+        stats.putDouble("averageDirtyRatio", tracker.getAverageDirtyRatio());
+        WritableArray histogram = Arguments.createArray();
+        for (long count : tracker.getRatioHistogram()) {
+            histogram.pushDouble(count);
+        }
+        stats.putArray("dirtyRatioHistogram", histogram);
+        promise.resolve(stats);
+    }
+
+    // Lets native consumers (e.g. an encoder wrapper) use the per-frame dirty tile map as ROI input
+    void setDirtyRegionListener(StaticFrameFilter.DirtyRegionListener listener) {
+        dirtyRegionListener = listener;
+        runOnSession(this::applyStaticFrameSettings);
+    }
+
+    /**
+     * Follows rotation and resolution changes of the default display while the projection is
+     * up. Changes are debounced: a rotation fires several callbacks, and each format change
+     * resizes the virtual display and makes the encoder reconfigure.
+     */
+    private void registerDisplayListener() {
+        if (displayListener != null) {
+            return;
+        }
+        Runnable reconfigure = () -> runOnSession(this::reconfigureForDisplay);
+        displayListener = new DisplayManager.DisplayListener() {
+            @Override
+            public void onDisplayAdded(int displayId) {
+            }
+
+            @Override
+            public void onDisplayRemoved(int displayId) {
+            }
+
+            @Override
+            public void onDisplayChanged(int displayId) {
+                if (displayId == Display.DEFAULT_DISPLAY) {
+                    mainHandler.removeCallbacks(reconfigure);
+                    mainHandler.postDelayed(reconfigure, DISPLAY_CHANGE_DEBOUNCE_MS);
+                }
+            }
+        };
+        getDisplayManager().registerDisplayListener(displayListener, mainHandler);
+    }
+
+    private void unregisterDisplayListener() {
+        if (displayListener != null) {
+            getDisplayManager().unregisterDisplayListener(displayListener);
+            displayListener = null;
+        }
+    }
+
+    private void reconfigureForDisplay() {
+        VideoCapturer capturer = screenCapturer;
+        if (capturer == null || sessionState.get() != CaptureSessionState.CAPTURING) {
+            return;
+        }
+        int[] format = resolveCaptureFormat();
+        if (format[0] == outputWidth && format[1] == outputHeight) {
+            return;
+        }
+        Log.d(TAG, "Display changed, sending " + format[0] + "x" + format[1] + " instead of " + outputWidth + "x" + outputHeight);
+        applyCaptureFormat(format);
+    }
+
+    /**
+     * Session executor only. Changes the capture format, resizing the virtual display only when
+     * the source's adapter cannot produce the format from it: for a new aspect ratio (rotation)
+     * or more pixels than it has. On this WebRTC version changeCaptureFormat releases and
+     * recreates the virtual display, and Android 14 allows one createVirtualDisplay per
+     * projection, so frequent steps such as backpressure must not go through it.
+     */
+    private void applyCaptureFormat(int[] format) {
+        int[] size = captureProfile.resolve(getDisplayMetrics());
+        boolean rotated = Math.abs((float) size[0] / size[1] - (float) captureWidth / captureHeight) > 0.01f;
+        if (rotated || size[0] > captureWidth || size[1] > captureHeight) {
+            Log.d(TAG, "Resizing virtual display from " + captureWidth + "x" + captureHeight + " to " + size[0] + "x" + size[1]);
+            screenCapturer.changeCaptureFormat(size[0], size[1], format[2]);
+            captureWidth = size[0];
+            captureHeight = size[1];
+        }
+        setOutputFormat(format[0], format[1], format[2]);
+    }
+
+    // Session executor only. The source's adapter scales frames down to at most width x height
+    // pixels on their way to the encoder. ScreenCapturerAndroid ignores the frame rate it is
+    // given, so the adapter enforces that too; the pacer only spaces frames within it.
+    private void setOutputFormat(int width, int height, int fps) {
+        outputWidth = width;
+        outputHeight = height;
+        captureFps = fps;
+        int maxPixels = width * height;
+        videoSource.adaptOutputFormat(VideoSource.AspectRatio.UNDEFINED, maxPixels, VideoSource.AspectRatio.UNDEFINED, maxPixels, fps);
+        FramePacer pacer = framePacer;
+        if (pacer != null) {
+            pacer.setTargetFps(fps);
+        }
+    }
+
+    // Session executor only: the profile's format for the current display, scaled down by the
+    // backpressure level. Returns {width, height, fps}.
+    private int[] resolveCaptureFormat() {
+        int[] size = captureProfile.resolve(getDisplayMetrics());
+        int level = backpressureLevel;
+        boolean keepResolution = keepsResolution(contentMode);
+        float sizeScale = EncoderBackpressureController.sizeScale(level, keepResolution);
+        int width = Math.max(2, Math.round(size[0] * sizeScale) & ~1);
+        int height = Math.max(2, Math.round(size[1] * sizeScale) & ~1);
+        int fps = Math.max(1, Math.round(captureProfile.fps * EncoderBackpressureController.fpsScale(level, keepResolution)));
+        return new int[] { width, height, fps };
+    }
+
+    private static boolean keepsResolution(ScreenContentMode mode) {
+        return mode.degradationPreference == RtpParameters.DegradationPreference.MAINTAIN_RESOLUTION;
+    }
+
+    /**
+     * Configures the encoder backpressure controller (see EncoderBackpressureController):
+     * enabled, intervalMs, overload/headroom drop ratios and utilizations, and how many
+     * consecutive samples it takes to step down (stepDownAfter) or up (stepUpAfter).
+     */
+    @ReactMethod
+    public void setBackpressure(ReadableMap options, Promise promise) {
+        try {
+            backpressureConfig = EncoderBackpressureController.Config.fromReadableMap(options, backpressureConfig);
+            mainHandler.post(() -> {
+                if (sessionState.get() == CaptureSessionState.CAPTURING) {
+                    startBackpressureMonitor();
+                }
+            });
+            if (!backpressureConfig.enabled) {
+                runOnSession(() -> {
+                    if (backpressureLevel != 0) {
+                        applyBackpressureLevel(0);
+                    }
+                });
+            }
+            promise.resolve(null);
+        } catch (Exception e) {
+            Log.e(TAG, "Error updating backpressure settings", e);
+            promise.reject("UPDATE_FAILED", "Failed to update backpressure settings: " + e.getMessage());
+        }
+    }
+
+    // Main thread. Restarts with the current config, keeping the level already applied.
+    private void startBackpressureMonitor() {
+        stopBackpressureMonitor();
+        EncoderBackpressureController.Config config = backpressureConfig;
+        if (!config.enabled) {
+            return;
+        }
+        EncoderBackpressureController controller = new EncoderBackpressureController(config, backpressureLevel);
+        backpressure = controller;
+        lastLayerCounters.clear();
+        lastPollNs = -1;
+        backpressurePoll = new Runnable() {
+            @Override
+            public void run() {
+                pollEncoderStats(controller, this, config.intervalMs);
+            }
+        };
+        mainHandler.postDelayed(backpressurePoll, config.intervalMs);
+    }
+
+    private void stopBackpressureMonitor() {
+        if (backpressurePoll != null) {
+            mainHandler.removeCallbacks(backpressurePoll);
+            backpressurePoll = null;
+        }
+        backpressure = null;
+    }
+
+    // Main thread. The next poll is only scheduled once this one's stats are in.
+    private void pollEncoderStats(EncoderBackpressureController controller, Runnable poll, long intervalMs) {
+        if (backpressurePoll != poll) {
+            return;
+        }
+        PeerConnection peerConnection = screenPeerConnection;
+        RtpSender sender = screenSender;
+        if (peerConnection == null || sender == null) {
+            lastPollNs = -1;
+            mainHandler.postDelayed(poll, intervalMs);
+            return;
+        }
+        long forwarded = captureMetrics.getFramesForwarded();
+        long nowNs = System.nanoTime();
+        try {
+            peerConnection.getStats(sender, report -> mainHandler.post(() -> {
+                if (backpressurePoll != poll) {
+                    return;
+                }
+                mainHandler.postDelayed(poll, intervalMs);
+                onEncoderStats(controller, report, forwarded, nowNs);
+            }));
+        } catch (Exception e) {
+            Log.w(TAG, "Could not read sender stats", e);
+            mainHandler.postDelayed(poll, intervalMs);
+        }
+    }
+
+    // Frames offered per layer are capped by the layer's max fps, so a 5 fps detail layer is
+    // not read as dropping most of a 30 fps capture
+    private void onEncoderStats(EncoderBackpressureController controller, RTCStatsReport report, long forwarded, long nowNs) {
+        boolean firstSample = lastPollNs < 0;
+        double intervalSeconds = (nowNs - lastPollNs) / 1e9;
+        long forwardedDelta = forwarded - lastPollForwarded;
+        lastPollNs = nowNs;
+        lastPollForwarded = forwarded;
+
+        SimulcastLayers layers = simulcastLayers;
+        double framesOffered = 0;
+        double framesEncoded = 0;
+        double encodeSeconds = 0;
+        boolean cpuLimited = false;
+        boolean bandwidthLimited = false;
+        for (RTCStats stats : report.getStatsMap().values()) {
+            if (!"outbound-rtp".equals(stats.getType())) {
+                continue;
+            }
+            Map<String, Object> members = stats.getMembers();
+            if (Boolean.FALSE.equals(members.get("active"))) {
+                continue;
+            }
+            Object rid = members.get("rid");
+            String key = rid != null ? rid.toString() : stats.getId();
+            double encoded = members.get("framesEncoded") instanceof Number ? ((Number) members.get("framesEncoded")).doubleValue() : 0;
+            double encodeTime = members.get("totalEncodeTime") instanceof Number ? ((Number) members.get("totalEncodeTime")).doubleValue() : 0;
+            double[] last = lastLayerCounters.put(key, new double[] { encoded, encodeTime });
+            cpuLimited |= "cpu".equals(members.get("qualityLimitationReason"));
+            bandwidthLimited |= "bandwidth".equals(members.get("qualityLimitationReason"));
+            if (firstSample || last == null) {
+                continue;
+            }
+            // Without simulcast there is one rid-less encoding, capped by the content mode
+            double maxFps = SimulcastLayers.RID_DETAIL.equals(key) ? layers.detailMaxFps
+                : SimulcastLayers.RID_MOTION.equals(key) ? layers.motionMaxFps
+                : rid == null ? contentMode.singleEncodingFps(captureProfile.fps)
+                : Double.MAX_VALUE;
+            framesOffered += Math.min(forwardedDelta, maxFps * intervalSeconds);
+            framesEncoded += encoded - last[0];
+            encodeSeconds += encodeTime - last[1];
+        }
+        // Frames the encoder skips to meet a bitrate target are not an encoder overload, and
+        // WebRTC already adapts to bandwidth on its own
+        if (firstSample || bandwidthLimited) {
+            return;
+        }
+
+        int level = controller.onSample(framesOffered, framesEncoded, encodeSeconds, intervalSeconds, cpuLimited);
+        if (level >= 0) {
+            Log.d(TAG, "Encoder backpressure level " + level + " (dropped " + Math.round(controller.getLastDropRatio() * 100)
+                + "%, encoder busy " + Math.round(controller.getLastUtilization() * 100) + "%, cpu limited " + cpuLimited + ")");
+            runOnSession(() -> applyBackpressureLevel(level));
+        }
+    }
+
+    // Session executor only
+    private void applyBackpressureLevel(int level) {
+        VideoCapturer capturer = screenCapturer;
+        if (capturer == null || sessionState.get() != CaptureSessionState.CAPTURING) {
+            return;
+        }
+        backpressureLevel = level;
+        int[] format = resolveCaptureFormat();
+        // Enforced on the source, so the step holds with pacing turned off
+        applyCaptureFormat(format);
+
+        WritableMap event = Arguments.createMap();
+        event.putInt("level", level);
+        event.putInt("width", format[0]);
+        event.putInt("height", format[1]);
+        event.putInt("fps", format[2]);
+        emitEvent(EVENT_BACKPRESSURE, event);
+    }
+
+    private DisplayManager getDisplayManager() {
+        return (DisplayManager) getReactApplicationContext().getSystemService(Context.DISPLAY_SERVICE);
+    }
+
+    // WindowMetrics needs a visual context and the module only has the application context;
+    // the display's real metrics are still correct from there.
+    @SuppressWarnings("deprecation")
+    private DisplayMetrics getDisplayMetrics() {
+        DisplayMetrics metrics = new DisplayMetrics();
+        getDefaultDisplay().getRealMetrics(metrics);
+        return metrics;
+    }
+
+    // Through DisplayManager, since WindowManager from a non-visual context trips StrictMode
+    private Display getDefaultDisplay() {
+        return getDisplayManager().getDisplay(Display.DEFAULT_DISPLAY);
+    }
+
+    /**
+     * Resolves with "stopping" as soon as the stop is claimed. The session is disposed in the
+     * background and ScreenCaptureStopped is emitted once it is gone; a new capture can be
+     * requested from then on.
+     *
+     * While a start is still pending, the start is cancelled instead: a request still waiting
+     * for the permission result is rejected with CANCELLED and this resolves with "idle"; a
+     * start already past the permission dialog is stopped as soon as it is up.
+     */
+    @ReactMethod
+    public void stopScreenCapture(Promise promise) {
+        CaptureSessionState state = sessionState.get();
+        if (state == CaptureSessionState.REQUESTING || state == CaptureSessionState.STARTING) {
+            // The start runs on the executor, so behind it the session is no longer STARTING
+            runOnSession(() -> cancelStart(promise));
+            return;
+        }
+        if (!sessionState.compareAndSet(CaptureSessionState.CAPTURING, CaptureSessionState.STOPPING)) {
+            promise.reject("NOT_CAPTURING", "Cannot stop screen capture while " + sessionState.get().jsName);
+            return;
+        }
+        runOnSession(() -> stopCaptureSessionAsync("user"));
+        promise.resolve(CaptureSessionState.STOPPING.jsName);
+    }
+
+    // Session executor only
+    private void cancelStart(Promise promise) {
+        if (sessionState.get() == CaptureSessionState.REQUESTING) {
+            rejectStart("CANCELLED", "Screen capture request was cancelled");
+            promise.resolve(CaptureSessionState.IDLE.jsName);
+        } else if (sessionState.compareAndSet(CaptureSessionState.CAPTURING, CaptureSessionState.STOPPING)) {
+            stopCaptureSessionAsync("user");
+            promise.resolve(CaptureSessionState.STOPPING.jsName);
+        } else {
+            // The start failed, or something else stopped it first
+            promise.resolve(sessionState.get().jsName);
+        }
+    }
+
+    // Our own stop also triggers the projection callback; by then the state is no longer CAPTURING
+    private void onProjectionStopped() {
+        if (sessionState.compareAndSet(CaptureSessionState.CAPTURING, CaptureSessionState.STOPPING)) {
+            stopCaptureSessionAsync("projection");
+        }
+    }
+
+    // Session executor only, in STOPPING; moves to IDLE once the old session is disposed
+    private void stopCaptureSessionAsync(String reason) {
+        WarmCaptureSession warm = warmSessionTimeoutMs > 0 ? detachWarmSession() : null;
+        CaptureTeardown teardown = detachCaptureSession();
+        try {
+            disposalExecutor.execute(() -> {
+                String error = null;
+                try {
+                    teardown.run();
+                } catch (Exception e) {
+                    Log.e(TAG, "Error stopping screen capture", e);
+                    error = e.getMessage();
+                }
+                String errorMessage = error;
+                try {
+                    sessionExecutor.execute(() -> onCaptureSessionDisposed(teardown, warm, reason, errorMessage));
+                } catch (RejectedExecutionException e) {
+                    // Destroyed meanwhile; nobody is left to park the warm session
+                    disposeQuietly(warm);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Only while the module is being destroyed, which disposes inline anyway
+            Log.w(TAG, "Disposal executor already shut down", e);
+            disposeQuietly(warm);
+        }
+    }
+
+    private void onCaptureSessionDisposed(CaptureTeardown teardown, WarmCaptureSession warm, String reason, String error) {
+        lastTeardownMs = teardown.getTotalMs();
+        maxTeardownMs = Math.max(maxTeardownMs, lastTeardownMs);
+        if (warm != null) {
+            if (error == null && !destroyed) {
+                parkWarmSession(warm);
+            } else {
+                disposeQuietly(warm);
+            }
+        }
+        sessionState.set(CaptureSessionState.IDLE);
+        Log.d(TAG, "Screen capture stopped (" + reason + ") after " + lastTeardownMs + "ms of teardown");
+
+        WritableMap event = Arguments.createMap();
+        event.putString("reason", reason);
+        event.putDouble("teardownMs", teardown.getTotalMs());
+        event.putDouble("stopCaptureMs", teardown.getStopCaptureMs());
+        if (error != null) {
+            event.putString("error", error);
+        }
+        emitEvent(EVENT_CAPTURE_STOPPED, event);
+
+        Promise pending = pendingRequestPromise;
+        if (pending != null && !destroyed) {
+            ReadableMap options = pendingRequestOptions;
+            pendingRequestOptions = null;
+            pendingRequestPromise = null;
+            requestScreenCapturePermission(options, pending);
+        }
+    }
+
+    // Session executor only: keeps source, capture thread and track for the next share. The
+    // track is disabled right away so peers do not see a frozen last frame.
+    private WarmCaptureSession detachWarmSession() {
+        if (videoSource == null || surfaceTextureHelper == null || screenVideoTrack == null) {
+            return null;
+        }
+        screenVideoTrack.setEnabled(false);
+        WarmCaptureSession warm = new WarmCaptureSession(videoSource, surfaceTextureHelper, screenVideoTrack, frameConverter,
+            screenSender, screenPeerConnection);
+        videoSource = null;
+        surfaceTextureHelper = null;
+        screenVideoTrack = null;
+        frameConverter = null;
+        return warm;
+    }
+
+    private void parkWarmSession(WarmCaptureSession warm) {
+        releaseWarmSession();
+        warmSession = warm;
+        mainHandler.postDelayed(() -> runOnSession(() -> {
+            if (warmSession == warm) {
+                Log.d(TAG, "Warm capture session expired");
+                releaseWarmSession();
+            }
+        }), warmSessionTimeoutMs);
+    }
+
+    // Session executor only
+    private void releaseWarmSession() {
+        WarmCaptureSession warm = warmSession;
+        if (warm == null) {
+            return;
+        }
+        warmSession = null;
+        try {
+            disposalExecutor.execute(() -> disposeQuietly(warm));
+        } catch (RejectedExecutionException e) {
+            disposeQuietly(warm);
+        }
+    }
+
+    private void disposeQuietly(WarmCaptureSession warm) {
+        if (warm == null) {
+            return;
+        }
+        try {
+            warm.toTeardown(getReactApplicationContext()).run();
         } catch (Exception e) {
-            Log.e(TAG, "Error stopping screen capture", e);
-            promise.reject("STOP_FAILED", "Failed to stop screen capture: " + e.getMessage());
+            Log.w(TAG, "Error disposing warm capture session", e);
         }
     }
 
+    /**
+     * How long the source, capture thread and track are kept after a stop so the next share
+     * starts faster (default 60 s). 0 disables this and releases a session kept right now.
+     */
+    @ReactMethod
+    public void setWarmSessionTimeout(int timeoutMs, Promise promise) {
+        warmSessionTimeoutMs = Math.max(0, timeoutMs);
+        runOnSession(() -> {
+            if (warmSessionTimeoutMs == 0) {
+                releaseWarmSession();
+            }
+            promise.resolve(null);
+        });
+    }
+
+    // Session executor only. Disposes inline; used where the caller needs the session gone
+    // before it continues (failed starts, destroy).
+    private void stopCaptureSession() throws InterruptedException {
+        detachCaptureSession().run();
+    }
+
+    // Session executor only: takes the session's resources off the module, so a new session
+    // never sees half-disposed objects. The frame converter is cleared first; processors skip
+    // frames without one.
+    private CaptureTeardown detachCaptureSession() {
+        stopLocalRecordingSilently();
+        mainHandler.post(this::unregisterDisplayListener);
+        mainHandler.post(this::stopBackpressureMonitor);
+        // The sender belongs to the peer connection; just stop tracking it
+        screenSender = null;
+        screenPeerConnection = null;
+        // A share stopped before its first encoded frame still counts up to the phases it reached
+        firstFrameTimeline = null;
+        finishStartup(startupTimeline);
+
+        PooledFrameConverter converter = frameConverter;
+        frameConverter = null;
+        PlaybackAudioCapture audioCapture = playbackAudioCapture;
+        playbackAudioCapture = null;
+        CaptureTeardown teardown = new CaptureTeardown(getReactApplicationContext(), screenCapturer, videoSource,
+            screenVideoTrack, surfaceTextureHelper, converter, audioCapture, mediaProjection);
+
+        screenCapturer = null;
+        staticFrameFilter = null;
+        regionCropper = null;
+        videoSource = null;
+        screenVideoTrack = null;
+        surfaceTextureHelper = null;
+        mediaProjection = null;
+        return teardown;
+    }
+
     @ReactMethod
     public void getScreenVideoTrack(Promise promise) {
         try {
@@ -225,28 +1586,250 @@ public class ScreenCaptureModule extends ReactContextBaseJavaModule {
         return screenVideoTrack;
     }
 
-    @Override
-    public void onCatalystInstanceDestroy() {
-        super.onCatalystInstanceDestroy();
-        
-        // Cleanup resources
-        if (screenCapturer != null) {
-            screenCapturer.dispose();
+    /**
+     * Adds the screen track to a call peer connection, given react-native-webrtc's id for it
+     * (RTCPeerConnection._pcId), and resolves with the sender id. The caller renegotiates once
+     * negotiationneeded fires.
+     */
+    @ReactMethod
+    public void addScreenTrackToPeerConnection(int peerConnectionId, ReadableArray streamIds, ReadableMap options, Promise promise) {
+        runOnSession(() -> {
+            try {
+                if (sessionState.get() != CaptureSessionState.CAPTURING || screenVideoTrack == null) {
+                    promise.reject("NOT_CAPTURING", "Screen capture is not running");
+                    return;
+                }
+                PeerConnection peerConnection = webRTCProvider.getPeerConnection(peerConnectionId);
+                if (peerConnection == null) {
+                    promise.reject("NO_PEER_CONNECTION", "No peer connection with id " + peerConnectionId);
+                    return;
+                }
+                List<String> ids = new ArrayList<>();
+                if (streamIds != null) {
+                    for (int i = 0; i < streamIds.size(); i++) {
+                        ids.add(streamIds.getString(i));
+                    }
+                }
+                boolean simulcast = options != null && options.hasKey("simulcast") && options.getBoolean("simulcast");
+                RtpTransceiver transceiver = addScreenTrack(peerConnection, ids, simulcast);
+                promise.resolve(transceiver.getSender().id());
+            } catch (Exception e) {
+                Log.e(TAG, "Error adding screen track", e);
+                promise.reject("ADD_TRACK_FAILED", "Failed to add screen track: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Adds the screen track to {@code peerConnection} as a send-only transceiver with one
+     * encoding capped by the content mode, or with {@code simulcast} (SFU calls only) a motion
+     * and a detail layer (see SimulcastLayers). Session executor only; the track comes from the
+     * same factory as the peer connection.
+     *
+     * The transceiver is added to the native peer connection behind react-native-webrtc's back:
+     * it goes into every offer and answer the JS side creates, but the JS getTransceivers() and
+     * getSenders() are not a reliable view of it. Adding it raises negotiationneeded on the JS
+     * peer connection like any addTrack; remove it with removeScreenTrackFromPeerConnection.
+     */
+    private RtpTransceiver addScreenTrack(PeerConnection peerConnection, List<String> streamIds, boolean simulcast) {
+        VideoTrack track = screenVideoTrack;
+        if (peerConnection == screenPeerConnection && screenSender != null) {
+            // Already sending from a warm session; a second transceiver would duplicate the track
+            for (RtpTransceiver transceiver : peerConnection.getTransceivers()) {
+                if (transceiver.getSender().id().equals(screenSender.id())) {
+                    return transceiver;
+                }
+            }
         }
+        List<RtpParameters.Encoding> encodings = simulcast
+            ? simulcastLayers.createEncodings()
+            : Collections.singletonList(contentMode.createEncoding(captureProfile.fps));
+        RtpTransceiver.RtpTransceiverInit init = new RtpTransceiver.RtpTransceiverInit(
+            RtpTransceiver.RtpTransceiverDirection.SEND_ONLY, streamIds, encodings);
+        RtpTransceiver transceiver = peerConnection.addTransceiver(track, init);
+        screenSender = transceiver.getSender();
+        screenPeerConnection = peerConnection;
+        contentMode.applyTo(screenSender, simulcastLayers, captureProfile.fps);
+        Log.d(TAG, "Screen track added " + (simulcast ? "with " + simulcastLayers : "without simulcast"));
+        return transceiver;
+    }
+
+    /**
+     * Stops the transceiver added by addScreenTrackToPeerConnection, live or parked in a warm
+     * session, so the next offer rejects its m-line. The native peer connection raises
+     * negotiationneeded on the JS side; renegotiate as for any removed track. Resolves false if
+     * the screen track is not being sent on that peer connection.
+     */
+    @ReactMethod
+    public void removeScreenTrackFromPeerConnection(int peerConnectionId, Promise promise) {
+        runOnSession(() -> {
+            try {
+                PeerConnection peerConnection = webRTCProvider != null ? webRTCProvider.getPeerConnection(peerConnectionId) : null;
+                if (peerConnection == null) {
+                    promise.reject("NO_PEER_CONNECTION", "No peer connection with id " + peerConnectionId);
+                    return;
+                }
+                RtpSender sender = null;
+                WarmCaptureSession warm = warmSession;
+                if (peerConnection == screenPeerConnection) {
+                    sender = screenSender;
+                    screenSender = null;
+                    screenPeerConnection = null;
+                } else if (warm != null && peerConnection == warm.peerConnection) {
+                    sender = warm.sender;
+                    warm.sender = null;
+                    warm.peerConnection = null;
+                }
+                promise.resolve(sender != null && stopTransceiver(peerConnection, sender));
+            } catch (Exception e) {
+                Log.e(TAG, "Error removing screen track", e);
+                promise.reject("REMOVE_TRACK_FAILED", "Failed to remove screen track: " + e.getMessage());
+            }
+        });
+    }
+
+    private static boolean stopTransceiver(PeerConnection peerConnection, RtpSender sender) {
+        for (RtpTransceiver transceiver : peerConnection.getTransceivers()) {
+            if (transceiver.getSender().id().equals(sender.id())) {
+                transceiver.stopStandard();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the content mode: "text", "detail" or "motion", or "auto" to let the dirty region
+     * statistics pick one while capturing. Auto mode needs static frame detection enabled.
+     */
+    @ReactMethod
+    public void setContentMode(String mode, Promise promise) {
+        if ("auto".equals(mode)) {
+            autoContentMode = true;
+            promise.resolve(contentMode.jsName);
+            return;
+        }
+        ScreenContentMode requested = ScreenContentMode.fromJsName(mode);
+        if (requested == null) {
+            promise.reject("INVALID_MODE", "Unknown content mode: " + mode);
+            return;
+        }
+        autoContentMode = false;
+        runOnSession(() -> {
+            try {
+                applyContentMode(requested);
+                promise.resolve(requested.jsName);
+            } catch (Exception e) {
+                Log.e(TAG, "Error applying content mode", e);
+                promise.reject("UPDATE_FAILED", "Failed to apply content mode: " + e.getMessage());
+            }
+        });
+    }
+
+    private void applyContentMode(ScreenContentMode mode) {
+        ScreenContentMode previous = contentMode;
+        contentMode = mode;
         if (videoSource != null) {
-            videoSource.dispose();
+            videoSource.setIsScreencast(mode.screencast);
         }
-        if (screenVideoTrack != null) {
-            screenVideoTrack.dispose();
+        RtpSender sender = screenSender;
+        if (sender != null) {
+            mode.applyTo(sender, simulcastLayers, captureProfile.fps);
         }
-        if (surfaceTextureHelper != null) {
-            surfaceTextureHelper.dispose();
+        // A backpressure level means a different format once the mode keeps or drops resolution
+        if (keepsResolution(mode) != keepsResolution(previous) && backpressureLevel > 0) {
+            applyBackpressureLevel(backpressureLevel);
         }
-        if (mediaProjection != null) {
-            mediaProjection.stop();
+        if (mode != previous) {
+            Log.d(TAG, "Content mode " + previous.jsName + " -> " + mode.jsName + (autoContentMode ? " (auto)" : ""));
+            WritableMap event = Arguments.createMap();
+            event.putString("mode", mode.jsName);
+            event.putBoolean("auto", autoContentMode);
+            emitEvent(EVENT_CONTENT_MODE, event);
         }
-        if (rootEglBase != null) {
-            rootEglBase.release();
+    }
+
+    private void emitEvent(String eventName, WritableMap params) {
+        if (getReactApplicationContext().hasActiveReactInstance()) {
+            getReactApplicationContext()
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(eventName, params);
         }
     }
+
+    /**
+     * Updates per-layer bitrate and fps caps; applies to the live sender if there is one,
+     * scaled for the current content mode.
+     */
+    @ReactMethod
+    public void setSimulcastLayers(ReadableMap options, Promise promise) {
+        try {
+            simulcastLayers = SimulcastLayers.fromReadableMap(options, simulcastLayers);
+        } catch (Exception e) {
+            Log.e(TAG, "Error updating simulcast layers", e);
+            promise.reject("UPDATE_FAILED", "Failed to update simulcast layers: " + e.getMessage());
+            return;
+        }
+        // Sender parameters are read and written on the session executor only
+        runOnSession(() -> {
+            try {
+                RtpSender sender = screenSender;
+                boolean applied = sender != null && contentMode.applyTo(sender, simulcastLayers, captureProfile.fps);
+                promise.resolve(applied);
+            } catch (Exception e) {
+                Log.e(TAG, "Error updating simulcast layers", e);
+                promise.reject("UPDATE_FAILED", "Failed to update simulcast layers: " + e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void onCatalystInstanceDestroy() {
+        super.onCatalystInstanceDestroy();
+        destroyed = true;
+        getReactApplicationContext().unregisterComponentCallbacks(memoryCallbacks);
+        
+        // Cleanup resources
+        setCaptureStatsEvents(false, 0);
+        // Queued behind any start still in flight, so that one is torn down too; release on
+        // the executor as well so a still-running init is balanced
+        runOnSession(() -> {
+            stopThumbnailsSilently();
+            sessionState.set(CaptureSessionState.STOPPING);
+            try {
+                stopCaptureSession();
+            } catch (Exception e) {
+                Log.w(TAG, "Error stopping screen capture on destroy", e);
+            }
+            if (screenCapturePromise != null) {
+                screenCapturePromise.reject("DESTROYED", "Screen capture module was destroyed");
+                screenCapturePromise = null;
+            }
+            if (pendingRequestPromise != null) {
+                pendingRequestPromise.reject("DESTROYED", "Screen capture module was destroyed");
+                pendingRequestPromise = null;
+                pendingRequestOptions = null;
+            }
+            releaseWarmSession();
+            // Earlier stops may still be disposing; they need the shared EGL context until done
+            disposalExecutor.shutdown();
+            try {
+                if (!disposalExecutor.awaitTermination(DISPOSAL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    Log.w(TAG, "Capture session disposal still running on destroy");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sessionState.set(CaptureSessionState.IDLE);
+            if (webRTCFuture != null) {
+                try {
+                    awaitWebRTC().release();
+                    webRTCProvider = null;
+                } catch (Exception e) {
+                    Log.w(TAG, "WebRTC components were never initialized", e);
+                }
+            }
+        });
+        sessionExecutor.shutdown();
+    }
 }
@@ -0,0 +1,88 @@
+package com.callapp.mobile;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Build;
+import android.os.IBinder;
+import android.util.Log;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Foreground service of type mediaProjection that keeps the process in the foreground while
+ * the screen is shared. Android 14 requires it to be running before getMediaProjection(),
+ * and without it the capture threads are throttled as soon as the user leaves the app.
+ * Started and stopped by ScreenCaptureModule.
+ */
+public class ScreenCaptureService extends Service {
+    private static final String TAG = "ScreenCaptureService";
+    private static final String CHANNEL_ID = "screen_capture";
+    private static final int NOTIFICATION_ID = 4201;
+
+    private static volatile CountDownLatch foregroundLatch = new CountDownLatch(1);
+
+    static void start(Context context) {
+        foregroundLatch = new CountDownLatch(1);
+        Intent intent = new Intent(context, ScreenCaptureService.class);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            context.startForegroundService(intent);
+        } else {
+            context.startService(intent);
+        }
+    }
+
+    static void stop(Context context) {
+        context.stopService(new Intent(context, ScreenCaptureService.class));
+    }
+
+    /** Blocks until the service has called startForeground; do not call on the main thread. */
+    static boolean awaitForeground(long timeoutMs) throws InterruptedException {
+        return foregroundLatch.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        Notification notification = createNotification();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            startForeground(NOTIFICATION_ID, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PROJECTION);
+        } else {
+            startForeground(NOTIFICATION_ID, notification);
+        }
+        foregroundLatch.countDown();
+        Log.d(TAG, "Screen capture service in foreground");
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        Log.d(TAG, "Screen capture service stopped");
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private Notification createNotification() {
+        Notification.Builder builder;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationManager manager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+            manager.createNotificationChannel(new NotificationChannel(CHANNEL_ID, "Screen sharing", NotificationManager.IMPORTANCE_LOW));
+            builder = new Notification.Builder(this, CHANNEL_ID);
+        } else {
+            builder = new Notification.Builder(this);
+        }
+        return builder
+            .setContentTitle("Sharing your screen")
+            .setSmallIcon(getApplicationInfo().icon)
+            .setOngoing(true)
+            .build();
+    }
+}
@@ -0,0 +1,93 @@
+package com.callapp.mobile;
+
+import org.webrtc.RtpParameters;
+import org.webrtc.RtpSender;
+
+/**
+ * How the screen track should be encoded. Text and detail keep the resolution under
+ * congestion and let the frame rate drop, so glyphs stay readable; motion keeps the frame
+ * rate and lets the resolution drop. The Java API has no track content hint, so the
+ * screencast flag on the VideoSource stands in for it.
+ *
+ * A single encoding gets the mode's bitrate bounds and frame rate cap. With simulcast, each
+ * mode scales the per-layer caps from SimulcastLayers: text needs less than detail on both
+ * layers, motion moves bitrate from the detail layer to the motion layer.
+ */
+enum ScreenContentMode {
+    TEXT("text", RtpParameters.DegradationPreference.MAINTAIN_RESOLUTION, true, 150_000, 1_500_000, 15, 0.6, 0.5),
+    DETAIL("detail", RtpParameters.DegradationPreference.MAINTAIN_RESOLUTION, true, 300_000, 2_500_000, 30, 1.0, 1.0),
+    MOTION("motion", RtpParameters.DegradationPreference.MAINTAIN_FRAMERATE, false, 300_000, 3_000_000, 60, 0.6, 2.0);
+
+    final String jsName;
+    final RtpParameters.DegradationPreference degradationPreference;
+    final boolean screencast;
+    final int minBitrateBps;
+    final int maxBitrateBps;
+    final int maxFramerate;
+    final double detailLayerScale;
+    final double motionLayerScale;
+
+    ScreenContentMode(String jsName, RtpParameters.DegradationPreference degradationPreference, boolean screencast,
+                      int minBitrateBps, int maxBitrateBps, int maxFramerate, double detailLayerScale, double motionLayerScale) {
+        this.jsName = jsName;
+        this.degradationPreference = degradationPreference;
+        this.screencast = screencast;
+        this.minBitrateBps = minBitrateBps;
+        this.maxBitrateBps = maxBitrateBps;
+        this.maxFramerate = maxFramerate;
+        this.detailLayerScale = detailLayerScale;
+        this.motionLayerScale = motionLayerScale;
+    }
+
+    /** Returns the mode for a JS name, or null if there is none. */
+    static ScreenContentMode fromJsName(String name) {
+        for (ScreenContentMode mode : values()) {
+            if (mode.jsName.equals(name)) {
+                return mode;
+            }
+        }
+        return null;
+    }
+
+    /** Frame rate cap of a single encoding for a capture running at {@code captureFps}. */
+    int singleEncodingFps(int captureFps) {
+        return Math.max(1, Math.min(maxFramerate, captureFps));
+    }
+
+    /** The encoding for a transceiver without simulcast, which any answerer accepts. */
+    RtpParameters.Encoding createEncoding(int captureFps) {
+        RtpParameters.Encoding encoding = new RtpParameters.Encoding(null, true, 1.0);
+        applySingle(encoding, captureFps);
+        return encoding;
+    }
+
+    /**
+     * Sets the degradation preference and bitrate bounds on {@code sender}. An encoding without
+     * a rid gets the mode's bounds and frame rate cap. Simulcast layers get the caps from
+     * {@code layers} with the bitrate scaled for this mode; the detail layer also gets the
+     * mode's minimum.
+     */
+    boolean applyTo(RtpSender sender, SimulcastLayers layers, int captureFps) {
+        RtpParameters parameters = sender.getParameters();
+        parameters.degradationPreference = degradationPreference;
+        for (RtpParameters.Encoding encoding : parameters.encodings) {
+            if (encoding.rid == null || encoding.rid.isEmpty()) {
+                applySingle(encoding, captureFps);
+            } else if (SimulcastLayers.RID_DETAIL.equals(encoding.rid)) {
+                layers.applyTo(encoding);
+                encoding.minBitrateBps = minBitrateBps;
+                encoding.maxBitrateBps = Math.max(minBitrateBps, (int) Math.round(encoding.maxBitrateBps * detailLayerScale));
+            } else if (SimulcastLayers.RID_MOTION.equals(encoding.rid)) {
+                layers.applyTo(encoding);
+                encoding.maxBitrateBps = (int) Math.round(encoding.maxBitrateBps * motionLayerScale);
+            }
+        }
+        return sender.setParameters(parameters);
+    }
+
+    private void applySingle(RtpParameters.Encoding encoding, int captureFps) {
+        encoding.minBitrateBps = minBitrateBps;
+        encoding.maxBitrateBps = maxBitrateBps;
+        encoding.maxFramerate = singleEncodingFps(captureFps);
+    }
+}
@@ -0,0 +1,92 @@
+package com.callapp.mobile;
+
+import com.facebook.react.bridge.ReadableMap;
+
+import org.webrtc.RtpParameters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Send encodings for the screen track when simulcast is requested: a downscaled, higher-fps
+ * layer for motion and a full-resolution, low-fps layer that keeps text legible. Both layers
+ * are encoded from the same captured frames, so the second layer adds an encode but no
+ * capture or conversion. Only SFUs accept simulcast; peer-to-peer answerers reject the offer.
+ */
+final class SimulcastLayers {
+    static final String RID_DETAIL = "h";
+    static final String RID_MOTION = "l";
+
+    final int detailMaxBitrateBps;
+    final int detailMaxFps;
+    final int motionMaxBitrateBps;
+    final int motionMaxFps;
+    final double motionScaleDown;
+
+    SimulcastLayers(int detailMaxBitrateBps, int detailMaxFps, int motionMaxBitrateBps, int motionMaxFps, double motionScaleDown) {
+        this.detailMaxBitrateBps = Math.max(50_000, detailMaxBitrateBps);
+        this.detailMaxFps = Math.max(1, Math.min(60, detailMaxFps));
+        this.motionMaxBitrateBps = Math.max(50_000, motionMaxBitrateBps);
+        this.motionMaxFps = Math.max(1, Math.min(60, motionMaxFps));
+        this.motionScaleDown = Math.max(1.0, motionScaleDown);
+    }
+
+    static SimulcastLayers defaults() {
+        return new SimulcastLayers(2_500_000, 5, 600_000, 30, 2.0);
+    }
+
+    /** Builds layers from JS options, taking any missing keys from {@code base}. */
+    static SimulcastLayers fromReadableMap(ReadableMap options, SimulcastLayers base) {
+        if (options == null) {
+            return base;
+        }
+        return new SimulcastLayers(
+            options.hasKey("detailMaxBitrate") ? options.getInt("detailMaxBitrate") : base.detailMaxBitrateBps,
+            options.hasKey("detailMaxFps") ? options.getInt("detailMaxFps") : base.detailMaxFps,
+            options.hasKey("motionMaxBitrate") ? options.getInt("motionMaxBitrate") : base.motionMaxBitrateBps,
+            options.hasKey("motionMaxFps") ? options.getInt("motionMaxFps") : base.motionMaxFps,
+            options.hasKey("motionScaleDown") ? options.getDouble("motionScaleDown") : base.motionScaleDown
+        );
+    }
+
+    /**
+     * Encodings for RtpTransceiverInit, lowest resolution first as WebRTC expects, so a
+     * receiver that only takes the first layer gets motion rather than the 5 fps detail layer.
+     * The layer count is fixed once the transceiver exists.
+     */
+    List<RtpParameters.Encoding> createEncodings() {
+        List<RtpParameters.Encoding> encodings = new ArrayList<>(2);
+        encodings.add(new RtpParameters.Encoding(RID_MOTION, true, motionScaleDown));
+        encodings.add(new RtpParameters.Encoding(RID_DETAIL, true, 1.0));
+        for (RtpParameters.Encoding encoding : encodings) {
+            applyTo(encoding);
+        }
+        return encodings;
+    }
+
+    /**
+     * Sets the caps of the layer matching the encoding's rid; returns false for other rids.
+     * On a live sender, ScreenContentMode.applyTo scales the bitrate for the content mode.
+     */
+    boolean applyTo(RtpParameters.Encoding encoding) {
+        if (RID_DETAIL.equals(encoding.rid)) {
+            encoding.maxBitrateBps = detailMaxBitrateBps;
+            encoding.maxFramerate = detailMaxFps;
+            encoding.scaleResolutionDownBy = 1.0;
+            return true;
+        }
+        if (RID_MOTION.equals(encoding.rid)) {
+            encoding.maxBitrateBps = motionMaxBitrateBps;
+            encoding.maxFramerate = motionMaxFps;
+            encoding.scaleResolutionDownBy = motionScaleDown;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "SimulcastLayers{detail=" + detailMaxBitrateBps + "bps@" + detailMaxFps
+            + ", motion=" + motionMaxBitrateBps + "bps@" + motionMaxFps + "/" + motionScaleDown + "}";
+    }
+}
@@ -0,0 +1,208 @@
+package com.callapp.mobile;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Time-to-first-frame of screen share starts. Each start gets a Timeline with every phase as
+ * milliseconds since the share request; finished timelines are kept as a rolling history in
+ * SharedPreferences so percentiles can be compared across app versions on the same device.
+ * Only starts that produced at least one frame are recorded.
+ */
+final class StartupLatencyTracker {
+    private static final String TAG = "StartupLatencyTracker";
+    private static final String PREFS_NAME = "share_startup_latency";
+    private static final String KEY_SAMPLES = "samples";
+    private static final int MAX_SAMPLES = 100;
+
+    enum Phase {
+        INTENT_LAUNCHED("intentLaunched"),
+        ACTIVITY_RESULT("activityResult"),
+        SERVICE_FOREGROUND("serviceForeground"),
+        CAPTURER_INITIALIZED("capturerInitialized"),
+        PROJECTION_CREATED("projectionCreated"),
+        FIRST_FRAME_CAPTURED("firstFrameCaptured"),
+        FIRST_FRAME_ENCODED("firstFrameEncoded");
+
+        final String jsName;
+
+        Phase(String jsName) {
+            this.jsName = jsName;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    /** Phase timestamps of one start. Marks may come from any thread; the first one wins. */
+    static final class Timeline {
+        private final long startNs = SystemClock.elapsedRealtimeNanos();
+        private final long[] phaseNs = new long[PHASES.length];
+        private boolean warm;
+        private boolean recorded;
+
+        private Timeline() {
+            Arrays.fill(phaseNs, -1);
+        }
+
+        synchronized void mark(Phase phase) {
+            if (phaseNs[phase.ordinal()] < 0) {
+                phaseNs[phase.ordinal()] = SystemClock.elapsedRealtimeNanos() - startNs;
+            }
+        }
+
+        synchronized boolean has(Phase phase) {
+            return phaseNs[phase.ordinal()] >= 0;
+        }
+
+        /** Whether the start reused a warm capture session. */
+        synchronized void setWarm(boolean warm) {
+            this.warm = warm;
+        }
+    }
+
+    static final class Sample {
+        final String version;
+        final long wallTimeMs;
+        final boolean warm;
+        /** Milliseconds since the request per phase, -1 if the phase was not reached. */
+        final double[] phaseMs;
+
+        Sample(String version, long wallTimeMs, boolean warm, double[] phaseMs) {
+            this.version = version;
+            this.wallTimeMs = wallTimeMs;
+            this.warm = warm;
+            this.phaseMs = phaseMs;
+        }
+    }
+
+    static final class Summary {
+        final int count;
+        final double p50Ms;
+        final double p95Ms;
+
+        Summary(int count, double p50Ms, double p95Ms) {
+            this.count = count;
+            this.p50Ms = p50Ms;
+            this.p95Ms = p95Ms;
+        }
+    }
+
+    private final SharedPreferences prefs;
+    // Loaded lazily; guarded by this
+    private List<Sample> samples;
+
+    StartupLatencyTracker(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    Timeline begin() {
+        return new Timeline();
+    }
+
+    /** Adds the timeline to the history once; later calls for the same timeline are ignored. */
+    void record(Timeline timeline) {
+        Sample sample;
+        synchronized (timeline) {
+            if (timeline.recorded || timeline.phaseNs[Phase.FIRST_FRAME_CAPTURED.ordinal()] < 0) {
+                return;
+            }
+            timeline.recorded = true;
+            double[] phaseMs = new double[PHASES.length];
+            for (int i = 0; i < PHASES.length; i++) {
+                phaseMs[i] = timeline.phaseNs[i] < 0 ? -1 : timeline.phaseNs[i] / 1e6;
+            }
+            sample = new Sample(BuildConfig.VERSION_NAME, System.currentTimeMillis(), timeline.warm, phaseMs);
+        }
+        Log.d(TAG, "Share started: first frame after " + sample.phaseMs[Phase.FIRST_FRAME_CAPTURED.ordinal()] + "ms"
+            + (sample.warm ? " (warm)" : ""));
+        synchronized (this) {
+            List<Sample> history = loadSamples();
+            history.add(sample);
+            while (history.size() > MAX_SAMPLES) {
+                history.remove(0);
+            }
+            save(history);
+        }
+    }
+
+    synchronized List<Sample> getSamples() {
+        return Collections.unmodifiableList(new ArrayList<>(loadSamples()));
+    }
+
+    /** Nearest-rank p50/p95 of a phase over the samples of {@code version} (null for all). */
+    synchronized Summary summarize(Phase phase, String version) {
+        List<Sample> history = loadSamples();
+        double[] values = new double[history.size()];
+        int count = 0;
+        for (Sample sample : history) {
+            double value = sample.phaseMs[phase.ordinal()];
+            if (value >= 0 && (version == null || version.equals(sample.version))) {
+                values[count++] = value;
+            }
+        }
+        if (count == 0) {
+            return new Summary(0, -1, -1);
+        }
+        Arrays.sort(values, 0, count);
+        return new Summary(count, values[rank(0.5, count)], values[rank(0.95, count)]);
+    }
+
+    private static int rank(double percentile, int count) {
+        return Math.max(0, (int) Math.ceil(percentile * count) - 1);
+    }
+
+    private List<Sample> loadSamples() {
+        if (samples != null) {
+            return samples;
+        }
+        samples = new ArrayList<>();
+        try {
+            JSONArray array = new JSONArray(prefs.getString(KEY_SAMPLES, "[]"));
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject item = array.getJSONObject(i);
+                JSONArray phases = item.getJSONArray("phaseMs");
+                double[] phaseMs = new double[PHASES.length];
+                Arrays.fill(phaseMs, -1);
+                for (int p = 0; p < phaseMs.length && p < phases.length(); p++) {
+                    phaseMs[p] = phases.getDouble(p);
+                }
+                samples.add(new Sample(item.getString("version"), item.getLong("time"), item.getBoolean("warm"), phaseMs));
+            }
+        } catch (JSONException e) {
+            Log.w(TAG, "Discarding unreadable startup latency history", e);
+            samples.clear();
+        }
+        return samples;
+    }
+
+    private void save(List<Sample> history) {
+        try {
+            JSONArray array = new JSONArray();
+            for (Sample sample : history) {
+                JSONArray phases = new JSONArray();
+                for (double value : sample.phaseMs) {
+                    phases.put(value);
+                }
+                array.put(new JSONObject()
+                    .put("version", sample.version)
+                    .put("time", sample.wallTimeMs)
+                    .put("warm", sample.warm)
+                    .put("phaseMs", phases));
+            }
+            prefs.edit().putString(KEY_SAMPLES, array.toString()).apply();
+        } catch (JSONException e) {
+            Log.w(TAG, "Failed to store startup latency history", e);
+        }
+    }
+}
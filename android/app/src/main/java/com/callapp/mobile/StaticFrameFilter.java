@@ -0,0 +1,150 @@
+package com.callapp.mobile;
+
+import android.util.Log;
+
+import org.webrtc.CapturerObserver;
+import org.webrtc.VideoFrame;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sits between the screen capturer and the video source observer and drops frames that are
+ * identical to the last forwarded one. Runs on the SurfaceTextureHelper thread.
+ *
+ * Changes are tracked per tile, so a blinking cursor or a clock only dirties a couple of
+ * tiles. Frames whose dirty ratio stays under the minor change ratio are forwarded at the
+ * lower minor change rate instead of the full capture rate.
+ *
+ * The signature is taken from a small copy of the frame made by the session's
+ * PooledFrameConverter (for texture frames, a GPU downscale and a tiny readback), so the
+ * per-frame cost is a pooled signature-sized buffer instead of a full-resolution comparison
+ * or a fresh allocation. Changes that fall between sample points are picked up at the latest
+ * by the next keep-alive frame.
+ */
+class StaticFrameFilter implements CapturerObserver {
+    private static final String TAG = "StaticFrameFilter";
+    static final int SIGNATURE_SIZE = 128;
+    static final int TILE_SIZE = 8;
+    private static final int SAMPLE_TOLERANCE = 2;
+
+    /** Receives the dirty tile map of every frame that is forwarded to the encoder. */
+    interface DirtyRegionListener {
+        void onDirtyRegions(DirtyRegionTracker tracker, long timestampNs);
+    }
+
+    private final CapturerObserver downstream;
+    private final CaptureMetrics metrics;
+    private final PooledFrameConverter converter;
+    private final ContentModeSelector selector;
+    private FrameSignature lastForwarded = new FrameSignature(SIGNATURE_SIZE, SIGNATURE_SIZE);
+    private FrameSignature current = new FrameSignature(SIGNATURE_SIZE, SIGNATURE_SIZE);
+    private long lastForwardedNs;
+    private final DirtyRegionTracker dirtyRegionTracker = new DirtyRegionTracker(SIGNATURE_SIZE, SIGNATURE_SIZE, TILE_SIZE);
+    private volatile DirtyRegionListener dirtyRegionListener;
+
+    private volatile boolean enabled = true;
+    private volatile long keepAliveIntervalNs = TimeUnit.SECONDS.toNanos(1);
+    private volatile float minorChangeRatio = 0.02f;
+    private volatile long minorChangeIntervalNs = TimeUnit.SECONDS.toNanos(1) / 5;
+
+    /**
+     * {@code converter} must be the one used on the capture thread this filter runs on.
+     * {@code selector}, which may be null, gets the dirty ratio of every compared frame.
+     */
+    StaticFrameFilter(CapturerObserver downstream, CaptureMetrics metrics, PooledFrameConverter converter,
+                      ContentModeSelector selector) {
+        this.downstream = downstream;
+        this.metrics = metrics;
+        this.converter = converter;
+        this.selector = selector;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /** Minimum rate at which unchanged frames are still forwarded so the stream never stalls. */
+    void setKeepAliveFps(double fps) {
+        keepAliveIntervalNs = fps > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / fps) : Long.MAX_VALUE;
+    }
+
+    /** Frames dirtying less than {@code ratio} of the tiles are forwarded at no more than {@code fps}. */
+    void setMinorChange(float ratio, double fps) {
+        minorChangeRatio = Math.max(0f, ratio);
+        minorChangeIntervalNs = fps > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / fps) : 0;
+    }
+
+    void setDirtyRegionListener(DirtyRegionListener listener) {
+        dirtyRegionListener = listener;
+    }
+
+    DirtyRegionTracker getDirtyRegionTracker() {
+        return dirtyRegionTracker;
+    }
+
+    @Override
+    public void onCapturerStarted(boolean success) {
+        lastForwarded.invalidate();
+        lastForwardedNs = 0;
+        downstream.onCapturerStarted(success);
+    }
+
+    @Override
+    public void onCapturerStopped() {
+        downstream.onCapturerStopped();
+    }
+
+    @Override
+    public void onFrameCaptured(VideoFrame frame) {
+        if (!enabled) {
+            downstream.onFrameCaptured(frame);
+            return;
+        }
+
+        long nowNs = frame.getTimestampNs();
+        long sinceForwardedNs = nowNs - lastForwardedNs;
+        boolean forward;
+        try {
+            computeSignature(frame, current);
+            float dirtyRatio = dirtyRegionTracker.update(current, lastForwarded, SAMPLE_TOLERANCE);
+            if (selector != null) {
+                selector.onFrameCompared(dirtyRatio);
+            }
+            if (dirtyRatio == 0f) {
+                forward = false;
+            } else if (dirtyRatio < minorChangeRatio) {
+                forward = sinceForwardedNs >= minorChangeIntervalNs;
+            } else {
+                forward = true;
+            }
+        } catch (Exception e) {
+            // Never hold frames back because of a signature failure
+            Log.w(TAG, "Failed to compute frame signature", e);
+            current.invalidate();
+            forward = true;
+        }
+
+        if (forward || sinceForwardedNs >= keepAliveIntervalNs) {
+            DirtyRegionListener listener = dirtyRegionListener;
+            if (listener != null) {
+                listener.onDirtyRegions(dirtyRegionTracker, nowNs);
+            }
+            FrameSignature previous = lastForwarded;
+            lastForwarded = current;
+            current = previous;
+            lastForwardedNs = nowNs;
+            downstream.onFrameCaptured(frame);
+        } else {
+            metrics.onFrameDropped();
+        }
+    }
+
+    private void computeSignature(VideoFrame frame, FrameSignature signature) {
+        PooledI420Buffer i420 = converter.toI420(frame.getBuffer(), signature.width, signature.height);
+        try {
+            signature.capture(i420.getDataY(), i420.getStrideY());
+        } finally {
+            i420.release();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.callapp.mobile;
+
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.graphics.YuvImage;
+import android.os.Process;
+import android.util.Log;
+
+import org.webrtc.VideoFrame;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes small JPEG thumbnails of the shared screen into a cache directory.
+ *
+ * Registered as a rate-limited frame processor, so it only sees a frame or two per second.
+ * The downscale happens on the GPU through the frame converter and only the small result is
+ * read back; NV21 conversion and JPEG compression run on a background-priority thread. A
+ * frame is skipped while the previous thumbnail is still being written. Only the newest
+ * {@code maxFiles} thumbnails are kept on disk.
+ */
+final class ThumbnailProducer implements FrameProcessor {
+    private static final String TAG = "ThumbnailProducer";
+
+    interface Listener {
+        void onThumbnail(String path, int width, int height, long timestampNs);
+    }
+
+    private final File directory;
+    private final int targetWidth;
+    private final int quality;
+    private final int maxFiles;
+    private final Listener listener;
+    private final AtomicBoolean compressing = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(() -> {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        runnable.run();
+    }, "ThumbnailThread"));
+
+    // Thumbnail thread only
+    private final ArrayDeque<File> files = new ArrayDeque<>();
+    private ByteBuffer nv21Y;
+    private ByteBuffer nv21UV;
+    private byte[] nv21;
+    private long sequence;
+
+    ThumbnailProducer(File directory, int targetWidth, int quality, int maxFiles, Listener listener) {
+        this.directory = directory;
+        this.targetWidth = Math.max(16, targetWidth) & ~1;
+        this.quality = Math.max(10, Math.min(100, quality));
+        this.maxFiles = Math.max(1, maxFiles);
+        this.listener = listener;
+    }
+
+    void start() {
+        executor.execute(() -> {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                Log.e(TAG, "Cannot create thumbnail directory " + directory);
+            }
+            // Leftovers from an earlier session are never reported again
+            File[] stale = directory.listFiles();
+            if (stale != null) {
+                for (File file : stale) {
+                    file.delete();
+                }
+            }
+        });
+    }
+
+    /** Stops writing; thumbnails already on disk stay until the next start(). */
+    void release() {
+        executor.shutdown();
+    }
+
+    // Capture thread
+    @Override
+    public void onFrame(VideoFrame frame, PooledFrameConverter converter) {
+        if (executor.isShutdown() || !compressing.compareAndSet(false, true)) {
+            return;
+        }
+        int frameWidth = frame.getRotatedWidth();
+        int frameHeight = frame.getRotatedHeight();
+        int width = Math.min(targetWidth, frameWidth & ~1);
+        int height = Math.max(2, Math.round((float) width * frameHeight / frameWidth) & ~1);
+
+        PooledI420Buffer thumbnail;
+        try {
+            thumbnail = converter.toI420(frame.getBuffer(), width, height);
+        } catch (Exception e) {
+            compressing.set(false);
+            throw e;
+        }
+        long timestampNs = frame.getTimestampNs();
+        try {
+            executor.execute(() -> {
+                try {
+                    writeThumbnail(thumbnail, timestampNs);
+                } catch (Exception e) {
+                    Log.e(TAG, "Failed to write thumbnail", e);
+                } finally {
+                    thumbnail.release();
+                    compressing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Released while this frame was being converted
+            thumbnail.release();
+            compressing.set(false);
+        }
+    }
+
+    private void writeThumbnail(PooledI420Buffer thumbnail, long timestampNs) throws IOException {
+        int width = thumbnail.getWidth();
+        int height = thumbnail.getHeight();
+        int ySize = width * height;
+        int uvSize = width * ((height + 1) / 2);
+        if (nv21 == null || nv21.length != ySize + uvSize) {
+            nv21Y = ByteBuffer.allocateDirect(ySize);
+            nv21UV = ByteBuffer.allocateDirect(uvSize);
+            nv21 = new byte[ySize + uvSize];
+        }
+        // libyuv needs direct buffers, YuvImage a byte array; at thumbnail size the copy is tiny
+        PooledFrameConverter.toNV12(thumbnail, nv21Y, nv21UV, true);
+        nv21Y.rewind();
+        nv21Y.get(nv21, 0, ySize);
+        nv21UV.rewind();
+        nv21UV.get(nv21, ySize, uvSize);
+
+        File file = new File(directory, "thumb_" + (sequence++) + ".jpg");
+        YuvImage image = new YuvImage(nv21, ImageFormat.NV21, width, height, new int[] { width, width });
+        try (OutputStream out = new FileOutputStream(file)) {
+            image.compressToJpeg(new Rect(0, 0, width, height), quality, out);
+        }
+        files.addLast(file);
+        while (files.size() > maxFiles) {
+            files.pollFirst().delete();
+        }
+        listener.onThumbnail(file.getAbsolutePath(), width, height, timestampNs);
+    }
+}
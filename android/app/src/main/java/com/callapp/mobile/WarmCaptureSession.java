@@ -0,0 +1,53 @@
+package com.callapp.mobile;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.webrtc.PeerConnection;
+import org.webrtc.RtpSender;
+import org.webrtc.SurfaceTextureHelper;
+import org.webrtc.VideoSource;
+import org.webrtc.VideoTrack;
+
+/**
+ * The parts of a stopped capture session that do not depend on the projection: video source,
+ * capture thread with its frame converter, and track. Kept for a while after a stop so the next
+ * share only has to attach a new capturer, instead of spinning up a thread, an EGL surface and
+ * a native source again. The track stays disabled while parked.
+ *
+ * If the track was added to a peer connection, it stays on that sender, so the sender and its
+ * peer connection are kept too and the next share keeps sending on the same transceiver.
+ */
+final class WarmCaptureSession {
+    private static final String TAG = "WarmCaptureSession";
+
+    final VideoSource source;
+    final SurfaceTextureHelper surfaceTextureHelper;
+    final VideoTrack track;
+    final PooledFrameConverter frameConverter;
+    // Session executor only; cleared when the screen track is removed from the peer connection
+    RtpSender sender;
+    PeerConnection peerConnection;
+
+    WarmCaptureSession(VideoSource source, SurfaceTextureHelper surfaceTextureHelper, VideoTrack track,
+            PooledFrameConverter frameConverter, RtpSender sender, PeerConnection peerConnection) {
+        this.source = source;
+        this.surfaceTextureHelper = surfaceTextureHelper;
+        this.track = track;
+        this.frameConverter = frameConverter;
+        this.sender = sender;
+        this.peerConnection = peerConnection;
+    }
+
+    CaptureTeardown toTeardown(Context context) {
+        if (sender != null) {
+            // The track is about to be disposed; the sender must not keep a reference to it
+            try {
+                sender.setTrack(null, false);
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "Sender already disposed", e);
+            }
+        }
+        return new CaptureTeardown(context, null, source, track, surfaceTextureHelper, frameConverter, null, null);
+    }
+}
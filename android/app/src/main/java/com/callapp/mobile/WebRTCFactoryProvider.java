@@ -0,0 +1,107 @@
+package com.callapp.mobile;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.ReactContext;
+import com.oney.WebRTCModule.EglUtils;
+import com.oney.WebRTCModule.WebRTCModule;
+
+import org.webrtc.EglBase;
+import org.webrtc.PeerConnection;
+import org.webrtc.PeerConnectionFactory;
+import org.webrtc.SurfaceTextureHelper;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * Process-wide access to the WebRTC objects native code needs: one EGL context and one
+ * PeerConnectionFactory, both shared with the call stack.
+ *
+ * The EGL context and the PeerConnectionFactory are react-native-webrtc's own, built with its
+ * own codec factories, so tracks created here can be added to the call's peer connections and
+ * textures can move between the two. The factory is borrowed and never disposed here; callers
+ * of {@link #acquire(ReactContext)} must still balance it with {@link #release()}.
+ */
+final class WebRTCFactoryProvider {
+    private static final String TAG = "WebRTCFactoryProvider";
+
+    private static WebRTCFactoryProvider instance;
+
+    private final WebRTCModule webRTCModule;
+    private final PeerConnectionFactory peerConnectionFactory;
+    private int refCount;
+
+    private WebRTCFactoryProvider(WebRTCModule webRTCModule, PeerConnectionFactory peerConnectionFactory) {
+        this.webRTCModule = webRTCModule;
+        this.peerConnectionFactory = peerConnectionFactory;
+    }
+
+    /**
+     * Borrows react-native-webrtc's factory, creating its native module if JS has not touched
+     * it yet; creating the module initializes WebRTC and builds the factory.
+     */
+    static synchronized WebRTCFactoryProvider acquire(ReactContext context) {
+        if (instance == null) {
+            WebRTCModule module = context.getNativeModule(WebRTCModule.class);
+            if (module == null) {
+                throw new IllegalStateException("react-native-webrtc module is not available");
+            }
+            instance = new WebRTCFactoryProvider(module, getModuleFactory(module));
+            Log.d(TAG, "Using react-native-webrtc's PeerConnectionFactory");
+        }
+        instance.refCount++;
+        return instance;
+    }
+
+    void release() {
+        synchronized (WebRTCFactoryProvider.class) {
+            if (refCount == 0) {
+                return;
+            }
+            refCount--;
+            // The factory belongs to react-native-webrtc, which disposes it with its module
+            if (refCount == 0 && instance == this) {
+                instance = null;
+            }
+        }
+    }
+
+    PeerConnectionFactory getPeerConnectionFactory() {
+        return peerConnectionFactory;
+    }
+
+    /** The peer connection react-native-webrtc knows by {@code id}, or null if there is none. */
+    PeerConnection getPeerConnection(int id) {
+        try {
+            Method method = WebRTCModule.class.getDeclaredMethod("getPeerConnection", int.class);
+            method.setAccessible(true);
+            return (PeerConnection) method.invoke(webRTCModule, id);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot look up react-native-webrtc peer connection " + id, e);
+        }
+    }
+
+    // react-native-webrtc keeps its factory in a package-private field and has no accessor
+    private static PeerConnectionFactory getModuleFactory(WebRTCModule module) {
+        try {
+            Field field = WebRTCModule.class.getDeclaredField("mFactory");
+            field.setAccessible(true);
+            PeerConnectionFactory factory = (PeerConnectionFactory) field.get(module);
+            if (factory == null) {
+                throw new IllegalStateException("react-native-webrtc has no PeerConnectionFactory");
+            }
+            return factory;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot read react-native-webrtc's PeerConnectionFactory", e);
+        }
+    }
+
+    EglBase.Context getEglContext() {
+        return EglUtils.getRootEglBaseContext();
+    }
+
+    SurfaceTextureHelper createSurfaceTextureHelper(String threadName) {
+        return SurfaceTextureHelper.create(threadName, getEglContext());
+    }
+}
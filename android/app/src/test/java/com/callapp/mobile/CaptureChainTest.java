@@ -0,0 +1,167 @@
+package com.callapp.mobile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.webrtc.CapturerObserver;
+import org.webrtc.VideoFrame;
+
+/**
+ * Drives the CaptureChain that ScreenCaptureModule builds for every share with a fake
+ * capturer at 60 fps, a recording observer in place of the video source and an inline sink
+ * on the frame distributor.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CaptureChainTest {
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+    private static final int CAPTURE_FPS = 60;
+
+    private final CaptureMetrics metrics = new CaptureMetrics();
+    private final RecordingObserver output = new RecordingObserver();
+    private final FrameDistributor distributor = new FrameDistributor();
+    private final PooledFrameConverter converter = new PooledFrameConverter();
+    private FakeScreenCapturer capturer;
+    private CaptureChain chain;
+    private final ContentModeSelector selector = new ContentModeSelector(ScreenContentMode.DETAIL, mode -> {
+        selectedMode = mode;
+        return true;
+    });
+    private long distributed;
+    private int firstFrameCalls;
+    private ScreenContentMode selectedMode;
+
+    @Before
+    public void setUp() {
+        distributor.addSink(frame -> distributed++, 0, null, false);
+        chain = new CaptureChain(output, distributor, metrics, converter, selector, CAPTURE_FPS, null, () -> firstFrameCalls++);
+        chain.getPacer().setTargetFps(30);
+        capturer = new FakeScreenCapturer();
+        capturer.initialize(null, null, chain.getInput());
+        capturer.startCapture(WIDTH, HEIGHT, CAPTURE_FPS);
+    }
+
+    @After
+    public void tearDown() {
+        capturer.stopCapture();
+        capturer.dispose();
+    }
+
+    @Test
+    public void pacesChangingContentToTargetRate() {
+        capturer.deliverFrames(2 * CAPTURE_FPS, 1);
+
+        CaptureMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(120, snapshot.framesCaptured);
+        assertTrue("forwarded " + output.frames, output.frames >= 58 && output.frames <= 62);
+        // Every drop comes from the pacer, and capture timing is the capturer's, not the paced rate
+        assertEquals(chain.getPacer().getFramesDropped(), snapshot.framesDropped);
+        assertEquals(snapshot.framesCaptured, output.frames + snapshot.framesDropped);
+        assertEquals(CAPTURE_FPS, snapshot.captureFps, 1);
+    }
+
+    @Test
+    public void dropsStaticContentDownToKeepAlive() {
+        capturer.deliverFrames(2 * CAPTURE_FPS, 0);
+
+        CaptureMetrics.Snapshot snapshot = metrics.snapshot();
+        // First frame plus about one keep-alive frame per second
+        assertTrue("forwarded " + output.frames, output.frames >= 1 && output.frames <= 3);
+        assertEquals(snapshot.framesCaptured, output.frames + snapshot.framesDropped);
+    }
+
+    @Test
+    public void forwardsEveryChangedFrameWithPacingOff() {
+        chain.getPacer().setEnabled(false);
+        capturer.deliverFrames(CAPTURE_FPS, 1);
+
+        assertEquals(CAPTURE_FPS, output.frames);
+        assertEquals(0, metrics.snapshot().framesDropped);
+    }
+
+    @Test
+    public void forwardsToSourceThenDistributor() {
+        capturer.deliverFrames(CAPTURE_FPS, 1);
+
+        assertEquals(output.frames, distributed);
+        assertEquals(output.frames, metrics.snapshot().framesForwarded);
+        assertEquals(1, firstFrameCalls);
+    }
+
+    @Test
+    public void selectsMotionFromCaptureRateNotPacedRate() {
+        // The pacer forwards fewer frames than the motion threshold; the capturer delivers 60 fps
+        chain.getPacer().setTargetFps(10);
+        capturer.deliverFrames(5 * CAPTURE_FPS, 1);
+
+        assertEquals(ScreenContentMode.MOTION, selectedMode);
+    }
+
+    @Test
+    public void selectsTextForStaticContent() {
+        capturer.deliverFrames(5 * CAPTURE_FPS, 0);
+
+        assertEquals(ScreenContentMode.TEXT, selectedMode);
+    }
+
+    @Test
+    public void stagesDoNotAllocatePerFrame() {
+        capturer.deliverFrames(5 * CAPTURE_FPS, 2);
+
+        assertEquals(5 * CAPTURE_FPS, capturer.getFramesGenerated());
+        assertEquals(1, capturer.getBuffersCreated());
+        // Static frame detection samples the captured planes into one pooled signature buffer
+        assertEquals(0, capturer.getToI420Calls());
+        assertEquals(0, capturer.getCropAndScaleCalls());
+        assertEquals(1, converter.getCreatedBufferCount());
+    }
+
+    @Test
+    public void cropsToRegion() {
+        chain.getCropper().setRegion(new float[] { 0.25f, 0.25f, 0.5f, 0.5f });
+        capturer.deliverFrames(CAPTURE_FPS, 1);
+
+        assertEquals(WIDTH / 2, output.lastWidth);
+        assertEquals(HEIGHT / 2, output.lastHeight);
+        assertEquals(WIDTH / 4, output.lastRegionX);
+        assertEquals(HEIGHT / 4, output.lastRegionY);
+        // One crop per captured frame, which is only a matrix change for texture frames
+        assertEquals(CAPTURE_FPS, capturer.getCropAndScaleCalls());
+        assertEquals(0, capturer.getToI420Calls());
+        assertEquals(1, capturer.getBuffersCreated());
+        assertEquals(1, converter.getCreatedBufferCount());
+        // Metrics see the captured size, ahead of the crop
+        assertEquals(WIDTH, metrics.snapshot().width);
+    }
+
+    private static final class RecordingObserver implements CapturerObserver {
+        long frames;
+        int lastWidth;
+        int lastHeight;
+        int lastRegionX;
+        int lastRegionY;
+
+        @Override
+        public void onCapturerStarted(boolean success) {
+        }
+
+        @Override
+        public void onCapturerStopped() {
+        }
+
+        @Override
+        public void onFrameCaptured(VideoFrame frame) {
+            frames++;
+            lastWidth = frame.getRotatedWidth();
+            lastHeight = frame.getRotatedHeight();
+            FakeScreenCapturer.SolidBuffer buffer = (FakeScreenCapturer.SolidBuffer) frame.getBuffer();
+            lastRegionX = buffer.getRegionX();
+            lastRegionY = buffer.getRegionY();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.callapp.mobile;
+
+import android.content.Context;
+
+import org.webrtc.CapturerObserver;
+import org.webrtc.SurfaceTextureHelper;
+import org.webrtc.VideoCapturer;
+import org.webrtc.VideoFrame;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand-in for ScreenCapturerAndroid: delivers solid gray frames synchronously on the calling
+ * thread, timestamped at the capture rate. Every {@code changeInterval} frames the luma level
+ * changes, so static frame detection sees a mix of changed and unchanged frames.
+ *
+ * Frame buffers are I420 buffers from a FrameBufferPool and go back to it when the chain
+ * releases them, so {@link #getBuffersCreated()} counts the buffers the chain kept alive at
+ * the same time. Crops and scales are plain Java, so the chain runs without WebRTC's native
+ * library; a cropped buffer remembers where it sits in the captured frame, and calls that
+ * would allocate on a real buffer (toI420, cropAndScale) are counted.
+ */
+final class FakeScreenCapturer implements VideoCapturer {
+    private static final long START_TIMESTAMP_NS = 1_000_000_000L;
+
+    private final FrameBufferPool<SolidBuffer> pool = new FrameBufferPool<>((width, height) -> new SolidBuffer(width, height, true), 4);
+    private CapturerObserver observer;
+    private int width;
+    private int height;
+    private long frameIntervalNs;
+    private long timestampNs = START_TIMESTAMP_NS;
+    private long framesGenerated;
+    private long toI420Calls;
+    private long cropAndScaleCalls;
+
+    @Override
+    public void initialize(SurfaceTextureHelper surfaceTextureHelper, Context context, CapturerObserver observer) {
+        this.observer = observer;
+    }
+
+    @Override
+    public void startCapture(int width, int height, int fps) {
+        changeCaptureFormat(width, height, fps);
+        observer.onCapturerStarted(true);
+    }
+
+    @Override
+    public void stopCapture() {
+        observer.onCapturerStopped();
+    }
+
+    @Override
+    public void changeCaptureFormat(int width, int height, int fps) {
+        this.width = width & ~1;
+        this.height = height & ~1;
+        this.frameIntervalNs = 1_000_000_000L / Math.max(1, fps);
+    }
+
+    @Override
+    public void dispose() {
+        pool.clear();
+    }
+
+    @Override
+    public boolean isScreencast() {
+        return true;
+    }
+
+    long getFramesGenerated() {
+        return framesGenerated;
+    }
+
+    long getBuffersCreated() {
+        return pool.getCreatedCount();
+    }
+
+    long getToI420Calls() {
+        return toI420Calls;
+    }
+
+    long getCropAndScaleCalls() {
+        return cropAndScaleCalls;
+    }
+
+    /** Delivers {@code count} frames; {@code changeInterval} 0 keeps the content static. */
+    void deliverFrames(int count, int changeInterval) {
+        for (int i = 0; i < count; i++) {
+            int step = changeInterval > 0 ? (int) (framesGenerated / changeInterval) : 0;
+            SolidBuffer buffer = pool.acquire(width, height);
+            buffer.setRegion(0, 0, width, height);
+            buffer.setLuma((byte) (64 + (step * 37) % 128));
+            buffer.refCount.set(1);
+
+            VideoFrame frame = new VideoFrame(buffer, 0, timestampNs);
+            framesGenerated++;
+            timestampNs += frameIntervalNs;
+            observer.onFrameCaptured(frame);
+            frame.release();
+        }
+    }
+
+    final class SolidBuffer implements VideoFrame.I420Buffer {
+        private final int width;
+        private final int height;
+        private final boolean pooled;
+        private final AtomicInteger refCount = new AtomicInteger();
+        private final ByteBuffer dataY;
+        private final ByteBuffer dataU;
+        private final ByteBuffer dataV;
+        private byte luma;
+        // Area of the captured frame this buffer shows, in captured pixels
+        private int regionX;
+        private int regionY;
+        private int regionWidth;
+        private int regionHeight;
+
+        SolidBuffer(int width, int height, boolean pooled) {
+            this.width = width;
+            this.height = height;
+            this.pooled = pooled;
+            int chromaSize = ((width + 1) / 2) * ((height + 1) / 2);
+            dataY = ByteBuffer.allocateDirect(width * height);
+            dataU = fill(ByteBuffer.allocateDirect(chromaSize), (byte) 128);
+            dataV = fill(ByteBuffer.allocateDirect(chromaSize), (byte) 128);
+        }
+
+        void setLuma(byte value) {
+            if (value != luma) {
+                luma = value;
+                fill(dataY, value);
+            }
+        }
+
+        void setRegion(int x, int y, int width, int height) {
+            regionX = x;
+            regionY = y;
+            regionWidth = width;
+            regionHeight = height;
+        }
+
+        int getRegionX() {
+            return regionX;
+        }
+
+        int getRegionY() {
+            return regionY;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public ByteBuffer getDataY() {
+            return dataY;
+        }
+
+        @Override
+        public ByteBuffer getDataU() {
+            return dataU;
+        }
+
+        @Override
+        public ByteBuffer getDataV() {
+            return dataV;
+        }
+
+        @Override
+        public int getStrideY() {
+            return width;
+        }
+
+        @Override
+        public int getStrideU() {
+            return (width + 1) / 2;
+        }
+
+        @Override
+        public int getStrideV() {
+            return (width + 1) / 2;
+        }
+
+        @Override
+        public VideoFrame.I420Buffer toI420() {
+            toI420Calls++;
+            retain();
+            return this;
+        }
+
+        @Override
+        public void retain() {
+            refCount.incrementAndGet();
+        }
+
+        @Override
+        public void release() {
+            if (refCount.decrementAndGet() == 0 && pooled) {
+                pool.recycle(width, height, this);
+            }
+        }
+
+        @Override
+        public VideoFrame.Buffer cropAndScale(int cropX, int cropY, int cropWidth, int cropHeight, int scaleWidth, int scaleHeight) {
+            cropAndScaleCalls++;
+            // Solid content looks the same after any crop or scale; only the region moves
+            SolidBuffer scaled = new SolidBuffer(scaleWidth, scaleHeight, false);
+            scaled.setLuma(luma);
+            scaled.setRegion(regionX + cropX * regionWidth / width, regionY + cropY * regionHeight / height,
+                cropWidth * regionWidth / width, cropHeight * regionHeight / height);
+            scaled.refCount.set(1);
+            return scaled;
+        }
+    }
+
+    private static ByteBuffer fill(ByteBuffer plane, byte value) {
+        for (int i = 0; i < plane.capacity(); i++) {
+            plane.put(i, value);
+        }
+        return plane;
+    }
+}
@@ -0,0 +1,90 @@
+package com.callapp.mobile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.webrtc.CapturerObserver;
+import org.webrtc.VideoFrame;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Checks that removeSink waits for an asynchronous sink's frame, so the sink can be released
+ * right after, and that a removed sink gets no more frames.
+ */
+public class FrameDistributorTest {
+    private final FrameDistributor distributor = new FrameDistributor();
+    private final ExecutorService sinkExecutor = Executors.newSingleThreadExecutor();
+    private FakeScreenCapturer capturer;
+
+    @Before
+    public void setUp() {
+        capturer = new FakeScreenCapturer();
+        capturer.initialize(null, null, new CapturerObserver() {
+            @Override
+            public void onCapturerStarted(boolean success) {
+            }
+
+            @Override
+            public void onCapturerStopped() {
+            }
+
+            @Override
+            public void onFrameCaptured(VideoFrame frame) {
+                distributor.distribute(frame, null);
+            }
+        });
+        capturer.startCapture(320, 240, 30);
+    }
+
+    @After
+    public void tearDown() {
+        sinkExecutor.shutdownNow();
+        capturer.dispose();
+    }
+
+    @Test
+    public void removeSinkWaitsForInFlightFrame() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean finished = new AtomicBoolean();
+        FrameDistributor.Registration registration = distributor.addSink(frame -> {
+            started.countDown();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            finished.set(true);
+        }, 0, sinkExecutor, false);
+
+        capturer.deliverFrames(1, 1);
+        assertTrue("sink never started", started.await(1, TimeUnit.SECONDS));
+        distributor.removeSink(registration);
+
+        assertTrue("removeSink returned during delivery", finished.get());
+        // The frame went back to the capturer once the sink was done with it
+        capturer.deliverFrames(1, 1);
+        assertEquals(1, capturer.getBuffersCreated());
+    }
+
+    @Test
+    public void removedSinkGetsNoMoreFrames() throws Exception {
+        long[] frames = new long[1];
+        FrameDistributor.Registration registration = distributor.addSink(frame -> frames[0]++, 0, sinkExecutor, false);
+
+        capturer.deliverFrames(1, 1);
+        distributor.removeSink(registration);
+        capturer.deliverFrames(3, 1);
+        sinkExecutor.submit(() -> { }).get();
+
+        assertEquals(1, frames[0]);
+        assertEquals(1, registration.getDelivered());
+    }
+}
@@ -0,0 +1,40 @@
+package com.callapp.mobile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.webrtc.RtpParameters;
+
+import java.util.List;
+
+/**
+ * Checks the encodings the screen transceiver is created with: a single rid-less encoding by
+ * default, and with simulcast the motion layer ahead of the detail layer.
+ */
+public class SimulcastLayersTest {
+    @Test
+    public void singleEncodingTakesContentModeCaps() {
+        RtpParameters.Encoding encoding = ScreenContentMode.TEXT.createEncoding(30);
+
+        assertNull(encoding.rid);
+        assertEquals(ScreenContentMode.TEXT.minBitrateBps, (int) encoding.minBitrateBps);
+        assertEquals(ScreenContentMode.TEXT.maxBitrateBps, (int) encoding.maxBitrateBps);
+        assertEquals(15, (int) encoding.maxFramerate);
+        // Never above the capture rate
+        assertEquals(10, (int) ScreenContentMode.MOTION.createEncoding(10).maxFramerate);
+    }
+
+    @Test
+    public void simulcastPutsMotionLayerFirst() {
+        SimulcastLayers layers = SimulcastLayers.defaults();
+        List<RtpParameters.Encoding> encodings = layers.createEncodings();
+
+        assertEquals(2, encodings.size());
+        assertEquals(SimulcastLayers.RID_MOTION, encodings.get(0).rid);
+        assertEquals(layers.motionMaxFps, (int) encodings.get(0).maxFramerate);
+        assertEquals(layers.motionScaleDown, encodings.get(0).scaleResolutionDownBy, 0);
+        assertEquals(SimulcastLayers.RID_DETAIL, encodings.get(1).rid);
+        assertEquals(layers.detailMaxFps, (int) encodings.get(1).maxFramerate);
+    }
+}
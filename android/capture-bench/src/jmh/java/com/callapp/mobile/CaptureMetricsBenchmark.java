@@ -0,0 +1,48 @@
+package com.callapp.mobile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Per-frame recording cost on the capture thread, and the cost of a stats snapshot. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaptureMetricsBenchmark {
+    private static final long FRAME_INTERVAL_NS = 33_333_333L;
+
+    private CaptureMetrics metrics;
+    private long timestampNs;
+
+    @Setup
+    public void setUp() {
+        metrics = new CaptureMetrics();
+        for (int i = 0; i < CaptureMetrics.RING_SIZE; i++) {
+            recordFrame();
+        }
+    }
+
+    @Benchmark
+    public void recordFrame() {
+        timestampNs += FRAME_INTERVAL_NS;
+        metrics.onFrameCaptured(timestampNs, 1280, 720);
+        metrics.onFrameForwarded(4_000_000L);
+    }
+
+    @Benchmark
+    public CaptureMetrics.Snapshot snapshot() {
+        return metrics.snapshot();
+    }
+}
@@ -0,0 +1,68 @@
+package com.callapp.mobile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame dirty tile computation. {@code static} compares identical frames (the common
+ * slide-sharing case, every tile is scanned fully), {@code cursor} changes a single tile and
+ * {@code full} changes every sample (each tile exits on its first sample).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DirtyRegionTrackerBenchmark {
+    private static final int SIZE = 128;
+    private static final int TILE_SIZE = 8;
+
+    @Param({ "static", "cursor", "full" })
+    public String change;
+
+    private FrameSignature reference;
+    private FrameSignature current;
+    private DirtyRegionTracker tracker;
+
+    @Setup
+    public void setUp() {
+        byte[] pixels = new byte[SIZE * SIZE];
+        new Random(7).nextBytes(pixels);
+        reference = signatureOf(pixels);
+
+        if ("cursor".equals(change)) {
+            pixels[SIZE * 3 + 3] ^= 0x7F;
+        } else if ("full".equals(change)) {
+            for (int i = 0; i < pixels.length; i++) {
+                pixels[i] ^= 0x7F;
+            }
+        }
+        current = signatureOf(pixels);
+        tracker = new DirtyRegionTracker(SIZE, SIZE, TILE_SIZE);
+    }
+
+    @Benchmark
+    public float update() {
+        return tracker.update(current, reference, 2);
+    }
+
+    private static FrameSignature signatureOf(byte[] pixels) {
+        FrameSignature signature = new FrameSignature(SIZE, SIZE);
+        signature.capture(ByteBuffer.wrap(pixels), SIZE);
+        return signature;
+    }
+}
@@ -0,0 +1,63 @@
+package com.callapp.mobile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acquiring and recycling an I420-sized direct buffer from the pool, against allocating a
+ * fresh direct buffer per frame the way toI420() does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameBufferPoolBenchmark {
+    @Param({ "640x360", "1280x720" })
+    public String resolution;
+
+    private int width;
+    private int height;
+    private FrameBufferPool<ByteBuffer> pool;
+
+    @Setup
+    public void setUp() {
+        String[] parts = resolution.split("x");
+        width = Integer.parseInt(parts[0]);
+        height = Integer.parseInt(parts[1]);
+        pool = new FrameBufferPool<>((w, h) -> ByteBuffer.allocateDirect(i420Size(w, h)), 3);
+        // Other resolutions in the pool make the lookup do some work
+        pool.recycle(320, 180, ByteBuffer.allocateDirect(i420Size(320, 180)));
+        pool.recycle(160, 90, ByteBuffer.allocateDirect(i420Size(160, 90)));
+    }
+
+    @Benchmark
+    public ByteBuffer pooled() {
+        ByteBuffer buffer = pool.acquire(width, height);
+        pool.recycle(width, height, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer allocatePerFrame() {
+        return ByteBuffer.allocateDirect(i420Size(width, height));
+    }
+
+    private static int i420Size(int width, int height) {
+        int chroma = ((width + 1) / 2) * ((height + 1) / 2);
+        return width * height + 2 * chroma;
+    }
+}
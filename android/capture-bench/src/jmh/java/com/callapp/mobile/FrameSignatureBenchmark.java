@@ -0,0 +1,48 @@
+package com.callapp.mobile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Cost of copying the downscaled luma plane into a signature, as done for every captured frame. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameSignatureBenchmark {
+    // Matches StaticFrameFilter.SIGNATURE_SIZE, which depends on WebRTC and is not compiled here
+    private static final int SIZE = 128;
+    // YuvConverter rounds the luma stride up to a multiple of 8, which a 128 wide plane already is
+    private static final int STRIDE = SIZE;
+
+    private ByteBuffer plane;
+    private FrameSignature signature;
+
+    @Setup
+    public void setUp() {
+        plane = ByteBuffer.allocateDirect(STRIDE * SIZE);
+        byte[] noise = new byte[STRIDE * SIZE];
+        new Random(42).nextBytes(noise);
+        plane.put(noise).rewind();
+        signature = new FrameSignature(SIZE, SIZE);
+    }
+
+    @Benchmark
+    public FrameSignature capture() {
+        signature.capture(plane, STRIDE);
+        return signature;
+    }
+}
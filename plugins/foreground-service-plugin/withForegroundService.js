@@ -9,6 +9,16 @@ const ensurePermission = (manifest, permission) => {
   }
 };
 
+const ensureService = (manifest, service) => {
+  const application = AndroidConfig.Manifest.getMainApplicationOrThrow(manifest);
+  const services = application.service ?? [];
+  const exists = services.some((s) => s.$['android:name'] === service.$['android:name']);
+  if (!exists) {
+    services.push(service);
+    application.service = services;
+  }
+};
+
 const withCallForegroundService = (config) => {
   return withAndroidManifest(config, (config) => {
     const manifest = config.modResults;
@@ -21,7 +31,14 @@ const withCallForegroundService = (config) => {
     ensurePermission(manifest, 'android.permission.FOREGROUND_SERVICE_CAMERA');
     ensurePermission(manifest, 'android.permission.FOREGROUND_SERVICE_MEDIA_PROJECTION');
 
-    // No hardcoded <service> registration here; the library manages it.
+    // Call services are registered by the library; screen capture runs in the app's own service
+    ensureService(manifest, {
+      $: {
+        'android:name': '.ScreenCaptureService',
+        'android:exported': 'false',
+        'android:foregroundServiceType': 'mediaProjection',
+      },
+    });
 
     return config;
   });